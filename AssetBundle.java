@@ -0,0 +1,342 @@
+/**
+ *  AssetBundle is the shipped faces and the card back already decoded, in one file. The pixels are stored as
+ *  premultiplied ARGB ints, the format JavaFX keeps images in, so at runtime the file is memory mapped and every
+ *  image is a PixelBuffer over its slice of the mapping: nothing is decoded and the pixels aren't copied onto
+ *  the heap, loading a face costs the page-in of 16KB. ImageCache uses it for every path it has and decodes the
+ *  jpgs for anything else, or when there's no bundle.
+ *  The bundle is built the first time the game runs (or ahead of time with java AssetBundle [file]) with ImageIO,
+ *  which doesn't need the JavaFX toolkit. Every entry remembers the size and last modified time of the file it
+ *  was decoded from, and the bundle is built again when one of those files changes, when it's missing one of the
+ *  paths, or when it's from another version or was written on a machine with the other byte order.
+ *  The mapping is read only, so the images must never be written to.
+ *
+ *  file layout: MAGIC (int), VERSION (int), byte order of the pixels (byte, 0 big endian, 1 little endian),
+ *  3 unused bytes, entry count (int), then per entry the path (short length, utf-8 bytes), width (int),
+ *  height (int), offset of its pixels (long), size (long) and last modified time (long, epoch millis) of the
+ *  file it was decoded from, -1 if they couldn't be found. the header is big endian, the pixels are in the byte
+ *  order named in the header, each image starting on a 64 byte boundary
+ *
+ **/
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AssetBundle {
+    public static final int MAGIC = 0x4D474142; //"MGAB"
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16; //before the entries
+    private static final int ALIGN = 64; //every image's pixels start on a multiple of this
+    private static final LongAdder HITS = MetricsRegistry.getShared().counter("image.bundleHits"); //images served from the mapping
+    private static AssetBundle shared; //opened the first time it's asked for
+    private static boolean sharedOpened; //true once opening the shared bundle was tried, even if there's none
+
+    private final Path file;
+    private final MappedByteBuffer mapped; //the whole file
+    private final ByteOrder order; //byte order of the pixels
+    private final HashMap<String, Entry> entries;
+
+    /**
+     * one image in the bundle
+     */
+    private static final class Entry {
+        private final int width;
+        private final int height;
+        private final int offset; //where its pixels start in the file
+        private final long sourceSize; //size of the file it was decoded from
+        private final long sourceModified; //last modified time of that file
+        private Image image; //made the first time it's asked for, then shared
+
+        Entry(int width, int height, int offset, long sourceSize, long sourceModified) {
+            this.width = width;
+            this.height = height;
+            this.offset = offset;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+        }
+    }
+
+    private AssetBundle(Path file, MappedByteBuffer mapped, ByteOrder order, HashMap<String, Entry> entries) {
+        this.file = file;
+        this.mapped = mapped;
+        this.order = order;
+        this.entries = entries;
+    }
+
+    /**
+     * returns the bundle of the back image and every shipped face at GameSettings.getAssetBundlePath(), building
+     * it first if it isn't there or is out of date
+     * @return AssetBundle, or null if bundles are turned off or it couldn't be built, then the jpgs are decoded
+     */
+    public static synchronized AssetBundle getShared() {
+        if (!sharedOpened) {
+            sharedOpened = true;
+            shared = openOrBuild(GameSettings.getAssetBundlePath(), TextureAtlas.defaultPaths());
+        }
+        return shared;
+    }
+
+    /**
+     * opens the bundle in file, building it from paths first if it's missing, out of date, doesn't have
+     * all of them or any of them has changed since it was built
+     * @param file the bundle file, null or empty for none
+     * @param paths the images it needs to have
+     * @return AssetBundle, or null if there's no file or it couldn't be built
+     */
+    public static AssetBundle openOrBuild(String file, List<String> paths) {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        Path path = Path.of(file);
+        try {
+            AssetBundle bundle = Files.exists(path) ? open(path) : null;
+            if (bundle == null || !bundle.isCurrent(paths)) {
+                build(path, paths);
+                bundle = open(path);
+            }
+            return bundle;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("not using the asset bundle " + path + ", decoding the images instead: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * maps a bundle file and reads its entries
+     * @param file the bundle
+     * @return AssetBundle, or null if the file isn't a bundle this version can use as it is
+     * @throws IOException if it can't be read
+     */
+    public static AssetBundle open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid once the channel is closed
+        }
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            return null;
+        }
+        ByteOrder order = header.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        if (order != ByteOrder.nativeOrder()) {
+            return null; //copied from a machine with the other byte order, the pixels would need swapping
+        }
+        header.position(HEADER_BYTES - 4);
+        int count = header.getInt();
+        HashMap<String, Entry> entries = new HashMap<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                int width = header.getInt();
+                int height = header.getInt();
+                long offset = header.getLong();
+                long sourceSize = header.getLong();
+                long sourceModified = header.getLong();
+                if (width <= 0 || height <= 0 || offset < 0 || offset + (long) width * height * 4 > mapped.capacity()) {
+                    return null; //truncated
+                }
+                entries.put(new String(name, StandardCharsets.UTF_8), new Entry(width, height, (int) offset, sourceSize, sourceModified));
+            }
+        } catch (RuntimeException e) {
+            return null; //the entry table runs off the end of the file
+        }
+        return new AssetBundle(file, mapped, order, entries);
+    }
+
+    /**
+     * decodes every path with ImageIO and writes them to file as premultiplied ARGB, through a temp file so a
+     * half written bundle is never opened. doesn't need the JavaFX toolkit
+     * @param file the bundle to write
+     * @param paths the images to put in it, same format ImageCache takes
+     * @throws IOException if an image can't be read or the file can't be written
+     */
+    public static void build(Path file, List<String> paths) throws IOException {
+        int[][] pixels = new int[paths.size()][];
+        int[] widths = new int[paths.size()];
+        int[] heights = new int[paths.size()];
+        byte[][] names = new byte[paths.size()][];
+        long[][] sources = new long[paths.size()][];
+        long headerBytes = HEADER_BYTES;
+        for (int i = 0; i < pixels.length; i++) {
+            sources[i] = source(paths.get(i));
+            BufferedImage decoded;
+            try (InputStream in = ImageCache.open(paths.get(i))) {
+                decoded = (in == null) ? null : ImageIO.read(in);
+            }
+            if (decoded == null) {
+                throw new IOException("could not load " + paths.get(i));
+            }
+            widths[i] = decoded.getWidth();
+            heights[i] = decoded.getHeight();
+            BufferedImage premultiplied = new BufferedImage(widths[i], heights[i], BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = premultiplied.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(decoded, 0, 0, null);
+            g.dispose();
+            pixels[i] = ((DataBufferInt) premultiplied.getRaster().getDataBuffer()).getData();
+            names[i] = paths.get(i).getBytes(StandardCharsets.UTF_8);
+            headerBytes += 2 + names[i].length + 4 + 4 + 8 + 8 + 8;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate((int) headerBytes).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.put((byte) (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 0 : 1)).put(new byte[3]);
+        header.putInt(pixels.length);
+        long[] offsets = new long[pixels.length];
+        long offset = align(headerBytes);
+        for (int i = 0; i < pixels.length; i++) {
+            offsets[i] = offset;
+            header.putShort((short) names[i].length).put(names[i]);
+            header.putInt(widths[i]).putInt(heights[i]).putLong(offset);
+            header.putLong(sources[i][0]).putLong(sources[i][1]);
+            offset = align(offset + (long) pixels[i].length * 4);
+        }
+        header.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            for (int i = 0; i < pixels.length; i++) {
+                ByteBuffer bytes = ByteBuffer.allocate(pixels[i].length * 4).order(ByteOrder.nativeOrder());
+                bytes.asIntBuffer().put(pixels[i]);
+                writeFully(channel, bytes, offsets[i]);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * returns the size and last modified time of the file an image path is loaded from, without reading it.
+     * either one is -1 if it can't be found
+     */
+    private static long[] source(String path) throws IOException {
+        URL url = ImageCache.locate(path);
+        if (url == null) {
+            return new long[] {-1, -1};
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                Path file = Path.of(url.toURI());
+                return new long[] {Files.size(file), Files.getLastModifiedTime(file).toMillis()};
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return new long[] {-1, -1};
+            }
+        }
+        URLConnection connection = url.openConnection(); //a jar entry knows its size and time from the jar's directory
+        long[] source = {connection.getContentLengthLong(), connection.getLastModified()};
+        connection.getInputStream().close(); //asking connected it, nothing is read
+        return source;
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    /**
+     * returns the image for path straight out of the mapping, the same Image every time it's asked for
+     * @param path image path, same format ImageCache takes
+     * @return Image, or null if it isn't in the bundle
+     */
+    public synchronized Image image(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.image == null) {
+            IntBuffer pixels = mapped.slice(entry.offset, entry.width * entry.height * 4).order(order).asIntBuffer();
+            entry.image = new WritableImage(new PixelBuffer<>(entry.width, entry.height, pixels,
+                    PixelFormat.getIntArgbPreInstance()));
+        }
+        HITS.increment();
+        return entry.image;
+    }
+
+    public boolean contains(String path) {
+        return entries.containsKey(path);
+    }
+
+    public boolean containsAll(List<String> paths) {
+        return entries.keySet().containsAll(paths);
+    }
+
+    /**
+     * returns true if the bundle has every path and none of the files they're decoded from have changed
+     * since it was built. only looks at the files' sizes and times, nothing is read or decoded
+     * @param paths the images the bundle needs to have
+     * @return boolean
+     */
+    public boolean isCurrent(List<String> paths) throws IOException {
+        for (String path : paths) {
+            Entry entry = entries.get(path);
+            if (entry == null) {
+                return false;
+            }
+            long[] source = source(path);
+            if (source[0] != entry.sourceSize || source[1] != entry.sourceModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * builds the bundle ahead of time, so the first run doesn't have to
+     * usage: java AssetBundle [file], the file defaults to the one the game uses
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : GameSettings.getAssetBundlePath());
+        List<String> paths = TextureAtlas.defaultPaths();
+        long start = System.nanoTime();
+        build(file, paths);
+        System.out.printf("wrote %d images to %s (%,d KB) in %.1f ms%n", paths.size(), file,
+                Files.size(file) / 1024, (System.nanoTime() - start) / 1e6);
+    }
+}
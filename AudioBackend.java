@@ -0,0 +1,46 @@
+/**
+ *  AudioBackend is what GamePane plays its sounds through. FxAudioBackend plays them with JavaFX media,
+ *  SilentAudioBackend plays nothing so the game runs headless or on a machine with no audio device.
+ *  GameSettings.getAudio() picks which one create() returns.
+ *
+ **/
+
+public interface AudioBackend {
+    /**
+     * starts loading the short sounds in the background so the first one plays without a delay
+     */
+    void preload();
+
+    /**
+     * plays a sound, short ones from memory and long ones streamed
+     * @param sound the sound to play
+     */
+    void play(Sound sound);
+
+    /**
+     * stops a sound if it's playing, a streamed one is released as well
+     * @param sound the sound to stop
+     */
+    void stop(Sound sound);
+
+    /**
+     * stops everything and lets go of whatever the backend loaded
+     */
+    void close();
+
+    /**
+     * returns the backend GameSettings asks for. if JavaFX media can't be used the game carries on silently
+     * @return AudioBackend
+     */
+    static AudioBackend create() {
+        if (GameSettings.isSilentAudio()) {
+            return new SilentAudioBackend();
+        }
+        try {
+            return new FxAudioBackend();
+        } catch (RuntimeException | LinkageError e) {
+            System.err.println("no audio, playing silently: " + e);
+            return new SilentAudioBackend();
+        }
+    }
+}
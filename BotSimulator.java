@@ -0,0 +1,327 @@
+/**
+ *  BotSimulator plays lots of seeded games of every level with computer players to see how many turns each level takes.
+ *  It deals with Deck.deal, the same deal CardGridPane uses, and plays through the headless GameEngine,
+ *  spreading the games over every core with a parallel stream. Every deal is checked for cards that don't have
+ *  their pair on the board, which is how the old "draw" on the small levels shows up (try --legacy-deal).
+ *
+ *  usage: java BotSimulator [games per level] [seed] [decay] [--legacy-deal]
+ *
+ **/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+public class BotSimulator {
+    /**
+     * the kinds of computer player. RANDOM remembers nothing, PERFECT remembers every card it has seen,
+     * DECAY remembers cards but forgets each one with some probability every turn
+     */
+    public enum Player { RANDOM, PERFECT, DECAY }
+
+    private static final int TURN_LIMIT_PER_CARD = 50; //a game is given up on after this many turns per card
+
+    private final Level level;
+    private final Player player;
+    private final double decay; //chance per turn that a DECAY player forgets a card it has seen
+    private final boolean legacyDeal; //deal the way setCardImages used to, first rows*cols cards of a shuffled 8x8 deck
+    private final ThreadLocal<Bot> bots; //one bot per worker thread so games don't allocate their board state
+
+    /**
+     * creates a simulator for one level and one kind of player
+     * @param level the level to play
+     * @param player the kind of player
+     * @param decay chance per turn of forgetting a card, only used by DECAY
+     * @param legacyDeal true to deal the old way, to reproduce unpaired cards
+     */
+    public BotSimulator(Level level, Player player, double decay, boolean legacyDeal) {
+        this.level = level;
+        this.player = player;
+        this.decay = decay;
+        this.legacyDeal = legacyDeal;
+        this.bots = ThreadLocal.withInitial(() -> new Bot(level.getRows(), level.getCols()));
+    }
+
+    /**
+     * plays games games in parallel, game i is seeded from seed and i so a run can be repeated exactly
+     * @param games number of games to play
+     * @param seed base seed
+     * @return the turn count histogram and deal problems over all of the games
+     */
+    public Tally run(long games, long seed) {
+        int maxTurns = TURN_LIMIT_PER_CARD * level.getCardCount();
+        return LongStream.range(0, games).parallel().collect(
+                () -> new Tally(maxTurns),
+                (tally, game) -> bots.get().play(new SplittableRandom(seed * 0x9E3779B97F4A7C15L + game), tally),
+                Tally::merge);
+    }
+
+    /**
+     * the board state and memory for one player, reused game after game on the same thread
+     */
+    private final class Bot {
+        private final int rows;
+        private final int cols;
+        private final GameEngine engine = new GameEngine();
+        private final int[] known; //pair id the player remembers for each card, -1 if it doesn't remember it
+        private final int[] candidates; //scratch list of card indexes
+        private final int[] seenAt; //scratch: index of a remembered card for each pair id
+
+        Bot(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.known = new int[rows * cols];
+            this.candidates = new int[rows * cols];
+            this.seenAt = new int[Math.max(Deck.FACE_COUNT, rows * cols)];
+        }
+
+        /**
+         * deals and plays one game, adding the result to tally
+         */
+        void play(SplittableRandom random, Tally tally) {
+            int n = rows * cols;
+            int[] deck = legacyDeal ? legacyDeal(n, random) : Deck.deal(n, random);
+            engine.deal(rows, cols, deck);
+            int completePairs = completePairs(deck);
+            if (completePairs < n / 2) {
+                tally.unpairedDeals++;
+            }
+            Arrays.fill(known, -1);
+            int maxTurns = tally.histogram.length - 1;
+            //the cards without a pair can never be matched, so playing past the last complete pair gets nowhere
+            while (engine.getMatchedPairs() < completePairs && engine.getTurns() < maxTurns) {
+                if (player == Player.DECAY) {
+                    forget(random);
+                }
+                takeTurn(random);
+            }
+            if (!engine.isSolved()) {
+                //a deal with an unpaired card is never solved either, it isn't a finished game however few turns it took
+                tally.unfinished++;
+            } else {
+                tally.histogram[engine.getTurns()]++;
+            }
+        }
+
+        /**
+         * flips two cards and resolves them, picking the cards the way the player would
+         */
+        private void takeTurn(SplittableRandom random) {
+            int a;
+            int b;
+            if (player != Player.RANDOM && findKnownPair()) {
+                a = candidates[0];
+                b = candidates[1];
+            } else if (player == Player.RANDOM) {
+                a = pick(random, -1, false);
+                b = pick(random, a, false);
+            } else {
+                a = pick(random, -1, true);
+                known[a] = engine.getPairId(a);
+                b = rememberedMatch(a);
+                if (b < 0) {
+                    b = pick(random, a, true);
+                }
+            }
+            engine.flip(a);
+            engine.flip(b);
+            if (player != Player.RANDOM) {
+                known[a] = engine.getPairId(a);
+                known[b] = engine.getPairId(b);
+            }
+            engine.resolve(a, b);
+        }
+
+        /**
+         * looks for two unmatched cards the player remembers as the same face, puts them in candidates[0..1]
+         */
+        private boolean findKnownPair() {
+            Arrays.fill(seenAt, -1);
+            for (int i = 0; i < known.length; i++) {
+                if (known[i] >= 0 && !engine.isMatched(i)) {
+                    if (seenAt[known[i]] >= 0) {
+                        candidates[0] = seenAt[known[i]];
+                        candidates[1] = i;
+                        return true;
+                    }
+                    seenAt[known[i]] = i;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * returns a remembered unmatched card with the same face as card, or -1
+         */
+        private int rememberedMatch(int card) {
+            for (int i = 0; i < known.length; i++) {
+                if (i != card && known[i] == known[card] && !engine.isMatched(i)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * picks a random unmatched card other than exclude, preferring ones the player doesn't remember if asked to
+         */
+        private int pick(SplittableRandom random, int exclude, boolean preferUnknown) {
+            int count = 0;
+            if (preferUnknown) {
+                for (int i = 0; i < known.length; i++) {
+                    if (i != exclude && known[i] < 0 && !engine.isMatched(i)) {
+                        candidates[count++] = i;
+                    }
+                }
+            }
+            if (count == 0) {
+                for (int i = 0; i < known.length; i++) {
+                    if (i != exclude && !engine.isMatched(i)) {
+                        candidates[count++] = i;
+                    }
+                }
+            }
+            return candidates[random.nextInt(count)];
+        }
+
+        /**
+         * DECAY players forget each remembered card with probability decay
+         */
+        private void forget(SplittableRandom random) {
+            for (int i = 0; i < known.length; i++) {
+                if (known[i] >= 0 && random.nextDouble() < decay) {
+                    known[i] = -1;
+                }
+            }
+        }
+
+        /**
+         * number of pair ids that have both of their cards on the board
+         */
+        private int completePairs(int[] deck) {
+            Arrays.fill(seenAt, 0);
+            int pairs = 0;
+            for (int id : deck) {
+                if (id >= 0 && id < seenAt.length && ++seenAt[id] == 2) {
+                    pairs++;
+                }
+            }
+            return pairs;
+        }
+    }
+
+    /**
+     * the deal setCardImages used to do: shuffle a full 8x8 deck and take the first size cards of it
+     */
+    private static int[] legacyDeal(int size, SplittableRandom random) {
+        int[] full = Deck.deal(Level.SIX.getCardCount(), random);
+        return Arrays.copyOf(full, size);
+    }
+
+    /**
+     * turn count histogram plus the games that couldn't be finished, merged across worker threads
+     */
+    public static final class Tally {
+        private final long[] histogram; //histogram[t] is the number of games finished in t turns
+        private long unpairedDeals; //deals with a card whose pair isn't on the board
+        private long unfinished; //games that hit the turn limit or couldn't be finished because of an unpaired card
+
+        Tally(int maxTurns) {
+            this.histogram = new long[maxTurns + 1];
+        }
+
+        void merge(Tally other) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            unpairedDeals += other.unpairedDeals;
+            unfinished += other.unfinished;
+        }
+
+        public long getFinished() {
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double getMean() {
+            long total = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                total += i * histogram[i];
+            }
+            long finished = getFinished();
+            return finished == 0 ? 0 : (double) total / finished;
+        }
+
+        /**
+         * returns the turn count that p percent of the finished games were done within
+         * @param p percentile, 0 to 100
+         * @return turns
+         */
+        public int getPercentile(double p) {
+            long finished = getFinished();
+            long target = (long) Math.ceil(finished * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= Math.max(1, target)) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        public long[] getHistogram() {
+            return histogram;
+        }
+
+        public long getUnpairedDeals() {
+            return unpairedDeals;
+        }
+
+        public long getUnfinished() {
+            return unfinished;
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = 100_000;
+        long seed = 1;
+        double decay = 0.1;
+        boolean legacy = false;
+        int position = 0;
+        for (String arg : args) {
+            if (arg.equals("--legacy-deal")) {
+                legacy = true;
+            } else if (position == 0) {
+                games = Long.parseLong(arg);
+                position++;
+            } else if (position == 1) {
+                seed = Long.parseLong(arg);
+                position++;
+            } else {
+                decay = Double.parseDouble(arg);
+            }
+        }
+        System.out.printf("%,d games per level and player, seed %d, decay %.2f%s, %d cores%n", games, seed, decay,
+                legacy ? ", legacy deal" : "", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %-8s %10s %10s %8s %6s %6s %6s %6s%n",
+                "level", "player", "unpaired", "unfinished", "mean", "p50", "p90", "p99", "max");
+        for (Level level : Level.values()) {
+            if (level.isLarge()) {
+                continue; //a random bot on a 100x100 board takes millions of turns a game, too slow to sweep by default
+            }
+            for (Player player : Player.values()) {
+                long start = System.nanoTime();
+                Tally tally = new BotSimulator(level, player, decay, legacy).run(games, seed);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-12s %-8s %10d %10d %8.2f %6d %6d %6d %6d  (%.1fs)%n",
+                        level.getName(), player, tally.getUnpairedDeals(), tally.getUnfinished(), tally.getMean(),
+                        tally.getPercentile(50), tally.getPercentile(90), tally.getPercentile(99),
+                        tally.getPercentile(100), seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ *  CanvasBoardRenderer draws a whole board of cards onto one Canvas instead of putting a node per card in the scene.
+ *  The cards still hold the game state, the renderer just reads what each one is showing and paints it into its cell.
+ *  Only the cells that change get repainted, so flips and matches cost one cell each.
+ *
+ **/
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+public class CanvasBoardRenderer {
+    private final Canvas canvas; //the single node the board is drawn on
+    private int rows; //size of the board being drawn
+    private int cols;
+    private double cellSize; //side length of each cell in pixels
+
+    /**
+     * creates a renderer with an empty canvas
+     */
+    public CanvasBoardRenderer() {
+        this.canvas = new Canvas();
+    }
+
+    /**
+     * returns the canvas the board is drawn on, this is the node that goes in the scene
+     * @return Canvas
+     */
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * sizes the canvas for a rows x cols board of square cells
+     * @param rows
+     * @param cols
+     * @param cellSize side length of a cell in pixels
+     */
+    public void resize(int rows, int cols, double cellSize) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellSize = cellSize;
+        canvas.setWidth(cols * cellSize);
+        canvas.setHeight(rows * cellSize);
+    }
+
+    /**
+     * clears the canvas and draws every card of the board
+     * @param cards the board, cards[row][col]
+     */
+    public void repaintAll(Card[][] cards) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                repaint(cards[i][j]);
+            }
+        }
+    }
+
+    /**
+     * redraws the one cell that card sits in. a hidden card leaves its cell empty,
+     * otherwise whatever it is displaying (face or back) is drawn centred in the cell like the StackPane would,
+     * scaled down if it doesn't fit
+     * @param card the card to redraw
+     */
+    public void repaint(Card card) {
+        int r = card.getRow();
+        int c = card.getCol();
+        if (r < 0 || c < 0 || r >= rows || c >= cols) {
+            return;
+        }
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double x = c * cellSize;
+        double y = r * cellSize;
+        gc.clearRect(x, y, cellSize, cellSize);
+        Image image = card.getDisplayedImage();
+        if (card.isVisible() && image != null) {
+            Rectangle2D vp = card.getDisplayedViewport();
+            double sx = (vp == null) ? 0 : vp.getMinX();
+            double sy = (vp == null) ? 0 : vp.getMinY();
+            double w = (vp == null) ? image.getWidth() : vp.getWidth();
+            double h = (vp == null) ? image.getHeight() : vp.getHeight();
+            double scale = Math.min(1, Math.min((cellSize - 2) / w, (cellSize - 2) / h)); //shrink faces bigger than the cell
+            double dw = w * scale;
+            double dh = h * scale;
+            gc.drawImage(image, sx, sy, w, h, x + (cellSize - dw) / 2, y + (cellSize - dh) / 2, dw, dh);
+        }
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(1);
+        gc.strokeRect(x + 0.5, y + 0.5, cellSize - 1, cellSize - 1);
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
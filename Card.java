@@ -5,14 +5,25 @@
  *  Represents a single card in the Concentration game.
  *  Each card displays either its face image or a back image.
  *  Cards are visually represented using an ImageView which updates when the card is flipped.
+ *  A flip of a card that's on screen is animated: the card turns edge on around the Y axis, the image is
+ *  swapped, and it turns back. The card is drawn once into a cached bitmap (CacheHint.SPEED) for the turn,
+ *  so a whole board flipping only moves bitmaps around. The state changes right away, only the picture lags.
  *
  **/
 
 
+import javafx.animation.Animation;
+import javafx.animation.Interpolator;
+import javafx.animation.RotateTransition;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.CacheHint;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
+import javafx.scene.transform.Rotate;
+import javafx.util.Duration;
 import java.io.FileNotFoundException;
+import java.util.function.Consumer;
 
 
 public class Card extends StackPane {
@@ -20,12 +31,22 @@ public class Card extends StackPane {
     private boolean flipped; //indicates whether the symbol is displayed (true) or the back of the card is displayed (false).
     private boolean matched; // indicates if the card has been matched.
     private String path; // contains the file path of the image.
+    private int pairId; // id shared by the two cards of a pair, -1 if the card hasn't been dealt a face
     private Image image; //stores the actual image object.  image is displayed using an ImageView object
     private int row;
     private int col;
     private int numRows;
     private int numCols;
-    private static final Image backPic = new Image(Card.class.getResourceAsStream("/projimages/backPic.jpg")); //image shown on the back of the card
+    private Rectangle2D viewport; //the part of image that holds the face when it comes from a TextureAtlas, null for a whole image
+    private Image back; //image shown on the back, sizedBack unless the card is using an atlas
+    private Rectangle2D backViewport; //the part of back that holds the back picture, null for a whole image
+    private Consumer<Card> onChange; //told whenever what the card shows changes, used by renderers that don't draw the ImageView
+    private static final Image backPic = ImageCache.getShared().get(TextureAtlas.BACK_PATH); //image shown on the back of the card
+    private int imageSize = ImageCache.FULL_SIZE; //size the faces are decoded at, follows setCardAndImageSize
+    private Image sizedBack = backPic; //backPic decoded at imageSize
+    private RotateTransition turnAway; //first half of a flip, turns the card edge on. made on the first animated flip
+    private RotateTransition turnBack; //second half, turns the other side back to face the player
+    private static int flipsRunning; //cards in the middle of a flip animation, FX thread only
 
 
     /**
@@ -35,13 +56,16 @@ public class Card extends StackPane {
     public Card(){
         flipped = false;
         matched = false;
+        this.pairId = -1;
         this.image = null;
+        this.back = sizedBack;
         this.iv = new ImageView(backPic);
         this.row = 0;
         this.col = 0;
         this.numRows = 0;
         this.numCols = 0;
         this.getChildren().add(this.iv);
+        this.visibleProperty().addListener((obs, was, now) -> fireChanged());
 //        this.setDisable(true);
 //        this.setVisible(false);
     }
@@ -54,13 +78,16 @@ public class Card extends StackPane {
         this.path = path;
         flipped = false;
         matched = false;
+        this.pairId = -1;
         this.image = null;
+        this.back = sizedBack;
         this.iv = new ImageView(backPic);
         this.row = 0;
         this.col = 0;
         this.numRows = 0;
         this.numCols = 0;
         this.getChildren().add(this.iv);
+        this.visibleProperty().addListener((obs, was, now) -> fireChanged());
     }
 
 
@@ -84,16 +111,160 @@ public class Card extends StackPane {
 
     /**
      * Flips the card by toggling between front and back image.
+     * animated if the card is on screen and GameSettings.getFlipMillis() isn't 0
      */
     public void flipCard() {
+        flipCard(true);
+    }
+
+    /**
+     * Flips the card by toggling between front and back image.
+     * @param animate false to swap the image right away even if the card is on screen
+     */
+    public void flipCard(boolean animate) {
         flipped = !flipped;
+        long millis = GameSettings.getFlipMillis();
+        if (animate && millis > 0 && getScene() != null && isVisible()) {
+            fireChanged(); //the state is already flipped, listeners don't wait for the picture
+            animateFlip(millis);
+        } else {
+            stopFlip();
+            showSide();
+        }
+    }
+
+    /**
+     * shows whichever side the card is on in the ImageView
+     */
+    private void showSide() {
         if (flipped) {
             iv.setImage(image);
+            iv.setViewport(viewport);
+            fireChanged();
         } else {
-            iv.setImage(backPic);
+            showBack();
         }
     }
 
+    /**
+     * turns the card edge on, swaps to the side it's on now and turns it back, millis in total.
+     * a flip that starts while another is running carries on from where the card has got to
+     */
+    private void animateFlip(long millis) {
+        if (turnAway == null) {
+            turnAway = new RotateTransition(Duration.ZERO, this);
+            turnAway.setAxis(Rotate.Y_AXIS);
+            turnAway.setInterpolator(Interpolator.EASE_IN);
+            turnAway.setOnFinished(e -> {
+                showSide();
+                setRotate(-90);
+                turnBack.play();
+            });
+            turnBack = new RotateTransition(Duration.ZERO, this);
+            turnBack.setAxis(Rotate.Y_AXIS);
+            turnBack.setInterpolator(Interpolator.EASE_OUT);
+            turnBack.setToAngle(0);
+            turnBack.setOnFinished(e -> endFlip());
+        }
+        boolean running = isFlipping();
+        turnAway.stop();
+        turnBack.stop();
+        if (!running) {
+            flipsRunning++;
+            setRotationAxis(Rotate.Y_AXIS);
+            setCache(true);
+            setCacheHint(CacheHint.SPEED); //turn a bitmap of the card instead of redrawing it every frame
+        }
+        //a card caught turning back is pointing the other way, -90..0, and turns edge on from there
+        double from = Math.abs(getRotate());
+        double half = millis / 2.0;
+        setRotate(from);
+        turnAway.setFromAngle(from);
+        turnAway.setToAngle(90);
+        turnAway.setDuration(Duration.millis(half * (90 - from) / 90));
+        turnBack.setDuration(Duration.millis(half));
+        turnAway.playFromStart();
+    }
+
+    /**
+     * true while a flip animation is running on this card
+     */
+    private boolean isFlipping() {
+        return turnAway != null && (turnAway.getStatus() == Animation.Status.RUNNING
+                || turnBack.getStatus() == Animation.Status.RUNNING);
+    }
+
+    /**
+     * stops a flip animation part way and leaves the card flat
+     */
+    private void stopFlip() {
+        if (isFlipping()) {
+            turnAway.stop();
+            turnBack.stop();
+            endFlip();
+        }
+    }
+
+    /**
+     * puts the card back to being drawn normally once a flip is over
+     */
+    private void endFlip() {
+        flipsRunning--;
+        setRotate(0);
+        setCacheHint(CacheHint.DEFAULT);
+        setCache(false);
+    }
+
+    /**
+     * returns how many cards are in the middle of a flip animation, for the frame rate check
+     * @return int
+     */
+    public static int getFlipsRunning() {
+        return flipsRunning;
+    }
+
+    /**
+     * Shows the back of the card in the ImageView.
+     */
+    private void showBack() {
+        iv.setImage(back);
+        iv.setViewport(backViewport);
+        fireChanged();
+    }
+
+    /**
+     * Tells the change listener, if there is one, that what the card shows has changed.
+     */
+    private void fireChanged() {
+        if (onChange != null) {
+            onChange.accept(this);
+        }
+    }
+
+    /**
+     * Sets the listener that's told whenever the card's displayed image or visibility changes.
+     * @param onChange the listener, or null for none.
+     */
+    public void setOnChange(Consumer<Card> onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * Returns the image the card is showing right now, the face if it's flipped and the back if not.
+     * @return the displayed image.
+     */
+    public Image getDisplayedImage() {
+        return iv.getImage();
+    }
+
+    /**
+     * Returns the part of the displayed image that's shown, or null if the whole image is shown.
+     * @return the displayed viewport.
+     */
+    public Rectangle2D getDisplayedViewport() {
+        return iv.getViewport();
+    }
+
 
     /**
      * Returns whether the card has been matched.
@@ -119,6 +290,14 @@ public class Card extends StackPane {
         return path;
     }
 
+    /**
+     * Returns the pair id of the card, two cards match when their pair ids are equal.
+     * @return the pair id, or -1 if the card hasn't been dealt a face.
+     */
+    public int getPairId() {
+        return pairId;
+    }
+
     /**
      * Returns the Image object used on the front of the card.
      * @return the front image.
@@ -129,10 +308,18 @@ public class Card extends StackPane {
 
     /**
      * Sets the Image object for the card's front face.
+     * If the card is already showing its face (the image was still loading when it was clicked) the new image is shown right away.
      * @param image the Image to set.
      */
     public void setImage(Image image) {
         this.image = image;
+        this.viewport = null;
+        if (flipped && (turnAway == null || turnAway.getStatus() != Animation.Status.RUNNING)) {
+            //while it's turning away the back is still showing, the face goes on at the midpoint
+            iv.setImage(image);
+            iv.setViewport(null);
+            fireChanged();
+        }
     }
 
     /**
@@ -209,10 +396,34 @@ public class Card extends StackPane {
     public void setCardAndImageSize(int width, int height){
         this.setPrefWidth(width);
         this.setPrefHeight(height);
+        iv.setFitWidth(width);
+        iv.setFitHeight(height);
+        iv.setPreserveRatio(true);
+        iv.setSmooth(true);
+        int size = Math.max(width, height);
+        if (ImageCache.sizeBucket(size) != ImageCache.sizeBucket(imageSize)) {
+            sizedBack = ImageCache.getShared().get(TextureAtlas.BACK_PATH, size);
+        }
+        imageSize = size;
+        if (backViewport == null && back != sizedBack) {
+            back = sizedBack;
+            if (!flipped) {
+                showBack();
+            }
+        }
+    }
+
+    /**
+     * the size faces for this card are decoded at, the bigger side of its size, ImageCache.FULL_SIZE before it has one
+     * @return size in pixels
+     */
+    public int getImageSize() {
+        return imageSize;
     }
 
     /**
      * Sets the file path for the card's front image and loads the image.
+     * The image comes from the shared ImageCache at this card's size, so both cards of a pair share one decoded Image.
      * Also ensures the ImageView is initialized with the back image.
      * @param path path to the front image file.
      * @throws FileNotFoundException if the image file is not found.
@@ -220,13 +431,67 @@ public class Card extends StackPane {
     public void setPath(String path) throws FileNotFoundException {
         //InputStream stream = getClass().getResourceAsStream(path);
         this.path = path;
-        this.image = new Image(path);
+        this.image = ImageCache.getShared().get(path, imageSize);
+        this.viewport = null;
+        this.back = sizedBack;
+        this.backViewport = null;
         if(iv == null){
             iv = new ImageView(this.image);
             this.getChildren().add(iv);
         }
-        iv.setImage(backPic);
-        this.setCardAndImageSize((int) this.getWidth(), (int) this.getHeight());
+        showBack();
+    }
+
+    /**
+     * Sets the card's pair id, and the front image path that goes with it, without decoding anything.
+     * The image is whatever is already decoded for that face, or null if it is still being loaded,
+     * in which case it gets filled in later through setImage.
+     * @param pairId the pair id, its face path comes from Deck.facePath.
+     * @param image the decoded front image, or null if it isn't ready yet.
+     */
+    public void setFace(int pairId, Image image) {
+        this.pairId = pairId;
+        this.path = Deck.facePath(pairId);
+        this.image = image;
+        this.viewport = null;
+        this.back = sizedBack;
+        this.backViewport = null;
+        showBack();
+    }
+
+    /**
+     * Sets the card's pair id and its front to that face's region of a TextureAtlas, and its back to the atlas
+     * copy of the back image. The card then shows the shared sheet through a viewport instead of holding its own image.
+     * @param pairId the pair id, its face must be in the atlas.
+     * @param atlas the atlas holding the front and back images.
+     */
+    public void setAtlasFace(int pairId, TextureAtlas atlas) {
+        this.pairId = pairId;
+        this.path = Deck.facePath(pairId);
+        this.image = atlas.getSheet();
+        this.viewport = atlas.getRegion(path);
+        this.back = atlas.getSheet();
+        this.backViewport = atlas.getRegion(TextureAtlas.BACK_PATH);
+        showBack();
+    }
+
+    /**
+     * Puts the card back to a fresh state so it can be reused for a new game:
+     * unflipped, unmatched, no front image, showing the normal back, visible and enabled.
+     */
+    public void reset() {
+        stopFlip();
+        this.flipped = false;
+        this.matched = false;
+        this.path = null;
+        this.pairId = -1;
+        this.image = null;
+        this.viewport = null;
+        this.back = sizedBack;
+        this.backViewport = null;
+        showBack();
+        this.setVisible(true);
+        this.setDisable(false);
     }
 
     /**
@@ -3,27 +3,61 @@
  *  Mason section 4
  *  4/22/2025
  * CardGridPane represents the grid layout of cards used in the Concentration game.
- * prepares a shuffled image path list for each game, sets image paths on cards, resets the grid for new games,
- * and attaches event listeners to individual cards for gameplay interaction.
+ * prepares a shuffled deck of pair ids for each game, sets the pair ids (and their faces) on cards, resets the grid for new games,
+ * and handles clicks for the whole grid with one listener that works out which card was hit.
+ * cards are kept in a pool and reset between games instead of being rebuilt, only the difference in card count
+ * is added to or taken off the grid when the level changes.
+ * the board can be shown either as a node per card (RenderMode.NODES), drawn onto a single canvas (RenderMode.CANVAS)
+ * or, for boards much bigger than the window, through a VirtualBoardView that only has cards for the cells in view
+ * (RenderMode.VIRTUAL). in virtual mode there's no card per cell at all, the deck and the GameEngine hold the board.
+ * boards with more pairs than there are shipped faces get generated faces from the FaceGenerator.
  *
  **/
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.GridPane;
 import javafx.scene.paint.Color;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.function.Consumer;
 
 public class CardGridPane extends GridPane{
+    /**
+     * how the board is put on screen: NODES puts every Card in the grid, CANVAS draws them all onto one Canvas,
+     * VIRTUAL shows a pannable, zoomable part of the board with cards reused as it scrolls
+     */
+    public enum RenderMode { NODES, CANVAS, VIRTUAL }
+
+    private static final LatencyHistogram INIT_CARDS_TIME = MetricsRegistry.getShared().histogram("grid.initCards");
+
     private Card [][] cards; //(2d array of Card objects)
-    private ArrayList<String> cardsList; // The pathnames of all the available card images.
-    private final int MAXROWS = 8; //the number of GridPane rows (8)
-    private final int MAXCOLS = 8; //the number of GridPane columns (8).
+    private int[] deck; // pair ids of the cards in the deck, two of each. the face image comes from Deck.facePath
+    private final Random random = new Random(); //used to shuffle the deck, reseeded for every deal
+    private final Random seeds = new Random(); //picks the seed of each deal
+    private long dealSeed; //seed the current deck was dealt with
+    private final int MAXROWS = 8; //the number of GridPane rows the default board starts with (8), bigger levels can go past it
+    private final int MAXCOLS = 8; //the number of GridPane columns the default board starts with (8).
     private int currentRows; //the actual number of rows and columns used in the current game as set by the user selected level.
     private int currentCols;
     private int cardSize; // the sidelength in pixels of the square card.
     private GamePane gamePane;
+    private final ImageCache imageCache = ImageCache.getShared(); //decoded faces, shared with the cards so each face is decoded once
+    private final DeckLoader deckLoader = DeckLoader.getShared(); //decodes the faces off the FX thread
+    private int dealId; //bumped on every deal so a slow load from an old deal doesn't overwrite the new one
+    private final ArrayList<Card> pool = new ArrayList<>(); //every card this grid has made, reused across games
+    private int shownCards; //how many cards from the front of the pool are on the grid right now
+    private RenderMode renderMode = RenderMode.NODES; //node per card or one canvas
+    private CanvasBoardRenderer canvasRenderer; //draws the board in canvas mode, made the first time it's needed
+    private VirtualBoardView virtualView; //shows the board in virtual mode, made the first time it's needed
+    private final VirtualBoardView.Board cellState = new CellState(); //what the virtual view reads the cells from
+    private boolean placing; //true while placeCards is resetting cards, so the canvas is painted once at the end
+    private final Consumer<Card> cardChanged = this::cardChanged; //one listener shared by every pooled card
 
     /**
      * no arg constructor that initializes all of the fields and populates the cards arraylist
@@ -32,26 +66,13 @@ public class CardGridPane extends GridPane{
      */
     public CardGridPane() throws FileNotFoundException {
         this.setGridLinesVisible(true);
-        cardsList = new ArrayList<>();
+        this.setOnMousePressed(this::handleMousePressed);
+        deck = new int[0];
         cards = new Card[MAXROWS][MAXCOLS];
 
         setCurrentRows(MAXROWS);
         setCurrentCols(MAXCOLS);
-        for(int i = 0; i< MAXROWS; i++){
-            for(int j = 0; j< MAXCOLS; j++){
-                Card card = new Card();
-                cards[i][j] = card;
-                cards[i][j].setCardAndImageSize(64, 64);
-                //card.setFlipped(false);
-                card.setOnMousePressed(event -> {
-                    card.flipCard();
-                    //gp.handleCardClicked(card);
-                });
-                this.add(card, i, j);
-
-            }
-        }
-        createCardImageList(MAXROWS * MAXCOLS);
+        placeCards(MAXROWS, MAXCOLS, 64);
         setCardImages();
     }
 
@@ -64,26 +85,13 @@ public class CardGridPane extends GridPane{
     public CardGridPane(GamePane gp) throws FileNotFoundException {
         this.gamePane = gp;
         this.setGridLinesVisible(true);
-        cardsList = new ArrayList<>();
+        this.setOnMousePressed(this::handleMousePressed);
+        deck = new int[0];
         cards = new Card[MAXROWS][MAXCOLS];
 
         setCurrentRows(MAXROWS);
         setCurrentCols(MAXCOLS);
-        for(int i = 0; i< MAXROWS; i++){
-            for(int j = 0; j< MAXCOLS; j++){
-                Card card = new Card();
-                cards[i][j] = card;
-                cards[i][j].setCardAndImageSize(64, 64);
-                //card.setFlipped(false);
-                card.setOnMousePressed(event -> {
-                    //card.flipCard();
-                    gp.handleCardClicked(card);
-                });
-                this.add(card, i, j);
-
-            }
-        }
-        createCardImageList(MAXROWS * MAXCOLS);
+        placeCards(MAXROWS, MAXCOLS, 64);
         setCardImages();
     }
 
@@ -97,122 +105,479 @@ public class CardGridPane extends GridPane{
      */
     public CardGridPane(int cardSize, GamePane gp) throws FileNotFoundException {
         this.setGridLinesVisible(true);
+        this.setOnMousePressed(this::handleMousePressed);
         this.gamePane = gp;
-        cardsList = new ArrayList<>();
+        deck = new int[0];
         cards = new Card[MAXROWS][MAXCOLS];
+        this.cardSize = cardSize;
         setCurrentRows(MAXROWS);
         setCurrentCols(MAXCOLS);
-        for (int i = 0; i < MAXROWS; i++) {
-            for (int j = 0; j < MAXCOLS; j++) {
-                Card card = new Card();
-                cards[i][j] = card;
-                cards[i][j].setCardAndImageSize(cardSize, cardSize);
-                //card.setFlipped(false);
-                card.setOnMousePressed(event -> {
-                    //card.flipCard();
-                    gp.handleCardClicked(card);
+        placeCards(MAXROWS, MAXCOLS, cardSize);
+        setCardImages();
 
 
-                });
-                this.add(card, i, j);
-            }
-        }
-        createCardImageList(MAXROWS * MAXCOLS);
-        setCardImages();
+    }
 
 
+    /**
+     * builds a rows x cols board and deals it once, with the card size and render mode already set so
+     * nothing is laid out twice. this is the one GamePane starts with
+     * @param gp
+     * @param cardSize side length in pixels of each card
+     * @param mode how to show the board
+     * @param rows
+     * @param cols
+     * @throws FileNotFoundException
+     */
+    public CardGridPane(GamePane gp, int cardSize, RenderMode mode, int rows, int cols) throws FileNotFoundException {
+        this.gamePane = gp;
+        this.setGridLinesVisible(true);
+        this.setOnMousePressed(this::handleMousePressed);
+        deck = new int[0];
+        cards = new Card[0][0];
+        this.cardSize = cardSize;
+        setRenderMode(mode);
+        initCards(rows, cols);
     }
 
+    /**
+     * builds the grid straight from a saved game: the snapshot's board is laid out with its layout and nothing
+     * else is dealt, so resuming doesn't pay for the default 8x8 board first.
+     * the render mode is set before any card is placed so a big board never goes into the scene as nodes
+     * @param gp
+     * @param cardSize side length in pixels of each card
+     * @param mode how to show the board
+     * @param snapshot the saved game
+     */
+    public CardGridPane(GamePane gp, int cardSize, RenderMode mode, GameSnapshot snapshot) {
+        this.gamePane = gp;
+        this.setGridLinesVisible(true);
+        this.setOnMousePressed(this::handleMousePressed);
+        deck = new int[0];
+        cards = new Card[0][0];
+        this.cardSize = cardSize;
+        setRenderMode(mode);
+        initCards(snapshot.getRows(), snapshot.getCols(), snapshot.getSeed(), snapshot.getPairIds());
+    }
 
     /***
-     * sets the card images from the paths in the cardsList arraylist so that they'll show up accordingly
-     * on the screen
+     * sets the card pair ids and images from the deck array so that they'll show up accordingly
+     * on the screen. the paths are set right away but the faces are decoded by the DeckLoader in the
+     * background, and handed to the cards on the FX thread once they're ready
      * @throws FileNotFoundException
      */
     public void setCardImages() throws FileNotFoundException {
-        createCardImageList(MAXROWS * MAXCOLS);
+        //deal only as many cards as the board has. dealing the full 8x8 deck and using the first rows*cols
+        //of it left cards without their pair on the smaller levels
+        createCardImageList(currentRows * currentCols);
+        showDeck();
+    }
+
+    /**
+     * puts the pair ids in deck on the cards, row by row, and gets their faces loading
+     */
+    private void showDeck() {
+        int deal = ++dealId;
+        if (renderMode == RenderMode.VIRTUAL) {
+            //nothing is decoded up front, the view gets each face when its card is turned up
+            imageCache.fitBoard(0); //only the cards on screen need faces, the cache's own bound is plenty
+            virtualView.setBoard(cellState, currentRows, currentCols);
+            return;
+        }
+        TextureAtlas atlas = GameSettings.isAtlasMode() ? TextureAtlas.getShared() : null;
+        LinkedHashSet<String> faces = new LinkedHashSet<>();
         int index = 0;
         for (int i = 0; i < currentRows; i++) {
             for (int j = 0; j < currentCols; j++) {
-                if (index < cardsList.size()) {
-                    cards[i][j].setPath(cardsList.get(index));
+                if (index < deck.length) {
+                    String path = Deck.facePath(deck[index]);
+                    if (atlas != null && atlas.contains(path)) {
+                        //the atlas only holds the shipped faces, generated ones still go through the loader
+                        cards[i][j].setAtlasFace(deck[index], atlas);
+                    } else {
+                        cards[i][j].setFace(deck[index], imageCache.peek(path, cardSize));
+                        faces.add(path);
+                    }
                     index++;
                 }
             }
         }
+        if (faces.isEmpty()) {
+            return;
+        }
+        //faces are decoded at the card size, a 20px card on a big board doesn't need the whole jpg
+        deckLoader.load(faces, cardSize).whenComplete((done, ex) -> Platform.runLater(() -> publishImages(deal)));
+    }
+
+    /**
+     * hands the decoded faces to every card that doesn't have its image yet.
+     * runs on the FX thread, if a newer deal has started since the load began it does nothing
+     * @param deal the deal the load was started for
+     */
+    private void publishImages(int deal) {
+        if (deal != dealId) {
+            return;
+        }
+        for (int i = 0; i < currentRows; i++) {
+            for (int j = 0; j < currentCols; j++) {
+                Card card = cards[i][j];
+                if (card.getImage() == null && card.getPath() != null) {
+                    card.setImage(imageCache.get(card.getPath(), cardSize));
+                }
+            }
+        }
+    }
+
+    /**
+     * starts decoding the faces a rows x cols board is dealt from, without waiting for it.
+     * @param rows
+     * @param cols
+     */
+    public void prewarm(int rows, int cols) {
+        if (renderMode == RenderMode.VIRTUAL) {
+            return; //faces are decoded as cards are turned up, a virtual board can have more faces than fit in memory
+        }
+        ArrayList<String> paths = facePaths(rows * cols);
+        if (GameSettings.isAtlasMode()) {
+            paths.removeIf(TextureAtlas.getShared()::contains); //the atlas already holds the shipped faces
+        }
+        deckLoader.prewarm(paths, cardSize);
+    }
 
+    /**
+     * returns the pair id of every card on the current board, row by row, for the GameEngine
+     * @return the pair ids
+     */
+    public int[] getPairIds() {
+        if (renderMode == RenderMode.VIRTUAL) {
+            return deck.clone();
+        }
+        int[] ids = new int[currentRows * currentCols];
+        for (int i = 0; i < currentRows; i++) {
+            for (int j = 0; j < currentCols; j++) {
+                ids[i * currentCols + j] = cards[i][j].getPairId();
+            }
+        }
+        return ids;
     }
 
     /**
-     * shuffles the cardsList arraylist so that all of the pairs aren't just next to each other
+     * shuffles the deck so that all of the pairs aren't just next to each other
      */
     public void shuffleImages(){
-        Collections.shuffle(cardsList);
+        Deck.shuffle(deck, random);
     }
 
     /**
-     * returns the card at that index in the cards array
+     * returns the card at that index in the cards array.
+     * in virtual mode it's the card showing that cell, one is bound to it if it's out of view
      * @param r row index
      * @param c cols index
      * @return Card
      */
     public Card getCard(int r, int c){
+        if (renderMode == RenderMode.VIRTUAL) {
+            return virtualView.getCard(r, c);
+        }
         return cards[r][c];
     }
 
 
     /**
      * takes the rows and cols params and creates a new grid with those dimensions
-     * clears the board and creates a new grid of cards with the requested dimensions
+     * resets the pooled cards and lays them out in a grid with the requested dimensions, only adding or removing
+     * the cards that the new size needs
      * @param rows
      * @param cols
      * @throws FileNotFoundException
      */
     public void initCards(int rows, int cols) throws FileNotFoundException {
+        GameEvents.InitCards event = new GameEvents.InitCards();
+        event.begin();
+        long start = System.nanoTime();
 
-        this.getChildren().clear();
         setCurrentRows(rows);
         setCurrentCols(cols);
 
-        createCardImageList(rows * cols);
-        shuffleImages();
+        placeCards(rows, cols, cardSize);
 
-        cards = new Card[rows][cols];
-        for(int i=0;i<rows;i++){
-            for(int j=0;j<cols;j++){
-                Card card = new Card();
+        setCardImages(); //deals the new deck, Deck.deal already shuffles it
+
+        recordInitCards(event, start);
+    }
+
+    /**
+     * records how long initCards took in the metrics and as a flight recorder event
+     * @param event the event begun when initCards started
+     * @param start System.nanoTime() when initCards started
+     */
+    private void recordInitCards(GameEvents.InitCards event, long start) {
+        INIT_CARDS_TIME.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.rows = currentRows;
+            event.cols = currentCols;
+            event.cardSize = cardSize;
+            event.commit();
+        }
+    }
+
+    /**
+     * same as initCards(rows, cols) but lays out a board that was dealt before instead of dealing a new one,
+     * used to replay a logged game
+     * @param rows
+     * @param cols
+     * @param seed the seed the layout was dealt with
+     * @param pairIds pair id of each card, row by row
+     */
+    public void initCards(int rows, int cols, long seed, int[] pairIds) {
+        if (pairIds.length != rows * cols) {
+            throw new IllegalArgumentException("expected " + (rows * cols) + " pair ids, got " + pairIds.length);
+        }
+        GameEvents.InitCards event = new GameEvents.InitCards();
+        event.begin();
+        long start = System.nanoTime();
+        setCurrentRows(rows);
+        setCurrentCols(cols);
+        placeCards(rows, cols, cardSize);
+        deck = pairIds.clone();
+        dealSeed = seed;
+        showDeck();
+        recordInitCards(event, start);
+    }
+
+    /**
+     * puts rows x cols cards on the grid, taking them from the pool and resetting them to a fresh unflipped,
+     * unmatched, visible state. new cards are only made when the pool runs out, and cards left over from a bigger
+     * board are taken off the grid but kept in the pool for later
+     * @param rows
+     * @param cols
+     * @param size side length in pixels of each card
+     */
+    private void placeCards(int rows, int cols, int size) {
+        if (renderMode == RenderMode.VIRTUAL) {
+            return; //the view binds its own cards
+        }
+        if (cards.length != rows || (rows > 0 && cards[0].length != cols)) {
+            cards = new Card[rows][cols];
+        }
+        int needed = rows * cols;
+        placing = true;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                Card card = pooledCard(i * cols + j);
+                card.reset();
+                card.setGridPos(i, j);
+                card.setGridSize(rows, cols);
+                card.setCardAndImageSize(size, size);
                 cards[i][j] = card;
-                card.setCardAndImageSize(cardSize, cardSize);
-                //card.setFlipped(false);
-                card.setVisible(true);
-                card.setDisable(false);
-                card.setOnMousePressed(event -> {
-                    //card.flipCard();
-                    this.gamePane.handleCardClicked(card);
-                });
-                this.add(card, j, i);
+                GridPane.setConstraints(card, j, i);
             }
         }
+        placing = false;
+        if (renderMode == RenderMode.CANVAS) {
+            canvasRenderer.resize(rows, cols, size);
+            canvasRenderer.repaintAll(cards);
+        } else {
+            showCardNodes(needed);
+        }
+    }
 
-        setCardImages();
+    /**
+     * makes the first count pooled cards the ones in the grid, adding or removing only the difference
+     * @param count how many cards should be in the grid
+     */
+    private void showCardNodes(int count) {
+        for (int k = shownCards; k < count; k++) {
+            this.getChildren().add(pool.get(k));
+        }
+        for (int k = shownCards - 1; k >= count; k--) {
+            this.getChildren().remove(pool.get(k));
+        }
+        shownCards = count;
+    }
+
+    /**
+     * switches between a node per card, drawing the whole board on one canvas and the virtual view.
+     * the game state stays the same, only what's in the scene changes. the cards aren't laid out while the
+     * board is virtual, so leaving virtual mode lays them out fresh from the deck
+     * @param mode the RenderMode to use
+     */
+    public void setRenderMode(RenderMode mode) {
+        if (mode == renderMode) {
+            return;
+        }
+        RenderMode old = renderMode;
+        renderMode = mode;
+        if (old == RenderMode.CANVAS) {
+            this.getChildren().remove(canvasRenderer.getCanvas());
+        } else if (old == RenderMode.VIRTUAL) {
+            this.getChildren().remove(virtualView);
+        } else {
+            showCardNodes(0);
+        }
+        this.setGridLinesVisible(mode == RenderMode.NODES);
+        if (mode == RenderMode.CANVAS) {
+            if (canvasRenderer == null) {
+                canvasRenderer = new CanvasBoardRenderer();
+            }
+            GridPane.setConstraints(canvasRenderer.getCanvas(), 0, 0);
+            this.getChildren().add(canvasRenderer.getCanvas());
+        } else if (mode == RenderMode.VIRTUAL) {
+            if (virtualView == null) {
+                virtualView = new VirtualBoardView(cardChanged);
+            }
+            GridPane.setConstraints(virtualView, 0, 0);
+            this.getChildren().add(virtualView);
+            virtualView.setBoard(cellState, currentRows, currentCols);
+            return;
+        }
+        if (old == RenderMode.VIRTUAL) {
+            placeCards(currentRows, currentCols, cardSize);
+            showDeck();
+        } else if (mode == RenderMode.CANVAS) {
+            double size = (currentRows > 0 && currentCols > 0 && cards[0][0].getPrefWidth() > 0)
+                    ? cards[0][0].getPrefWidth() : cellSize();
+            canvasRenderer.resize(currentRows, currentCols, size);
+            canvasRenderer.repaintAll(cards);
+        } else {
+            showCardNodes(currentRows * currentCols);
+        }
+    }
 
+    public RenderMode getRenderMode() {
+        return renderMode;
     }
 
     /**
-     * creates the arraylist of image paths and then shuffles them
+     * called by a card whenever what it shows changes, repaints just that card's cell in canvas mode
+     * @param card the card that changed
+     */
+    private void cardChanged(Card card) {
+        if (renderMode == RenderMode.VIRTUAL) {
+            virtualView.cardChanged(card);
+            return;
+        }
+        if (renderMode == RenderMode.CANVAS && !placing && cardAtCell(card.getRow(), card.getCol()) == card) {
+            canvasRenderer.repaint(card);
+        }
+    }
+
+    /**
+     * returns the pooled card at index, making it only the first time it's needed
+     * @param index position in the pool
+     * @return Card
+     */
+    private Card pooledCard(int index) {
+        while (pool.size() <= index) {
+            Card card = new Card();
+            card.setOnChange(cardChanged);
+            pool.add(card);
+        }
+        return pool.get(index);
+    }
+
+    /**
+     * the one mouse handler for the whole grid. finds the card that was pressed and sends it to the
+     * GamePane, or just flips it if there's no GamePane. hidden (matched) and disabled cards are ignored
+     * @param event the mouse press
+     */
+    private void handleMousePressed(MouseEvent event) {
+        Card card = cardAt(event);
+        if (card == null || !card.isVisible() || card.isDisabled()) {
+            return;
+        }
+        if (gamePane == null) {
+            card.flipCard();
+        } else {
+            gamePane.handleCardClicked(card);
+        }
+    }
+
+    /**
+     * works out which card a mouse event is over. uses the pick result first, walking up from the picked node
+     * to its Card and using the card's row/col, and falls back to dividing the coordinates by the card size
+     * when nothing inside a card was picked (which is always the case in canvas mode)
+     * @param event the mouse event
+     * @return the Card, or null if the event isn't over a card of the current board
+     */
+    private Card cardAt(MouseEvent event) {
+        Node node = event.getPickResult().getIntersectedNode();
+        while (node != null && node != this) {
+            if (node instanceof Card) {
+                Card card = (Card) node;
+                return cardAtCell(card.getRow(), card.getCol()) == card ? card : null;
+            }
+            node = node.getParent();
+        }
+        double cell = cellSize();
+        if (cell <= 0 || renderMode == RenderMode.VIRTUAL) {
+            return null;
+        }
+        Insets insets = getInsets();
+        double x = event.getX() - insets.getLeft();
+        double y = event.getY() - insets.getTop();
+        if (x < 0 || y < 0) {
+            return null;
+        }
+        return cardAtCell((int) (y / cell), (int) (x / cell));
+    }
+
+    /**
+     * returns the card at r, c of the current board or null if that's outside it
+     * @param r row index
+     * @param c column index
+     * @return Card or null
+     */
+    private Card cardAtCell(int r, int c) {
+        if (renderMode == RenderMode.VIRTUAL) {
+            return virtualView.boundCard(r, c);
+        }
+        if (r < 0 || c < 0 || r >= currentRows || c >= currentCols) {
+            return null;
+        }
+        return cards[r][c];
+    }
+
+    /**
+     * side length of one grid cell, the laid out card size if the cards have been through layout, otherwise cardSize
+     * @return cell size in pixels
+     */
+    private double cellSize() {
+        if (renderMode == RenderMode.CANVAS) {
+            return canvasRenderer.getCellSize();
+        }
+        if (renderMode == RenderMode.VIRTUAL) {
+            return virtualView.getCellSize();
+        }
+        if (currentRows > 0 && currentCols > 0 && cards[0][0].getWidth() > 0) {
+            return cards[0][0].getWidth();
+        }
+        return cardSize;
+    }
+
+    /**
+     * creates the deck of pair ids, two of each, and then shuffles them.
+     * every deal gets its own seed so a logged game says exactly how its board was dealt
      * @param size
      */
     public void createCardImageList(int size){
-        int counter = 0;
-        cardsList = new ArrayList<>();
-        //cardsList.add("/resources/fish.png");
+        dealSeed = seeds.nextLong();
+        random.setSeed(dealSeed);
+        deck = Deck.deal(size, random);
+
+    }
+
+    /**
+     * returns the distinct face paths a deck of size cards uses, one per pair
+     * @param size number of cards in the deck
+     * @return the face paths
+     */
+    public ArrayList<String> facePaths(int size){
+        ArrayList<String> paths = new ArrayList<>();
         for(int i=0;i < (size / 2); i++){
-            cardsList.add("/projimages/image_" + counter + ".jpg");
-            cardsList.add("/projimages/image_" + counter + ".jpg");
-            counter++;
+            paths.add(Deck.facePath(i));
         }
-        shuffleImages();
-
+        return paths;
     }
 
 
@@ -241,6 +606,10 @@ public class CardGridPane extends GridPane{
         this.currentCols = currentCols;
     }
 
+    public long getDealSeed() {
+        return dealSeed;
+    }
+
     public void setCardSize(int cs){
         this.cardSize = cs;
     }
@@ -249,4 +618,40 @@ public class CardGridPane extends GridPane{
         return cardSize;
     }
 
+    /**
+     * returns the image cache the cards get their faces from, mostly so the hit/miss/eviction counters can be checked
+     * @return ImageCache
+     */
+    public ImageCache getImageCache(){
+        return imageCache;
+    }
+
+
+    /**
+     * the virtual view's window on the board: pair ids from the deck, face up and matched from the GamePane's engine.
+     * until the engine has been dealt this board (or with no GamePane) every card reads as face down
+     */
+    private final class CellState implements VirtualBoardView.Board {
+        @Override
+        public int getPairId(int index) {
+            return deck[index];
+        }
+
+        @Override
+        public boolean isFlipped(int index) {
+            GameEngine engine = engine();
+            return engine != null && engine.isFlipped(index);
+        }
+
+        @Override
+        public boolean isMatched(int index) {
+            GameEngine engine = engine();
+            return engine != null && engine.isMatched(index);
+        }
+
+        private GameEngine engine() {
+            GameEngine engine = (gamePane == null) ? null : gamePane.getEngine();
+            return (engine != null && engine.getCardCount() == deck.length) ? engine : null;
+        }
+    }
 }
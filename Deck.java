@@ -0,0 +1,78 @@
+/**
+ *  Deck builds and shuffles the cards for a game as int pair ids, two cards per id.
+ *  A card's face is looked up from its id with facePath, so matching is an int compare and the same ids
+ *  can be written to save files or sent over the network without any image paths.
+ *  There's no JavaFX in here so the deal logic can be used headless.
+ *
+ **/
+
+import java.util.random.RandomGenerator;
+
+public class Deck {
+    public static final int FACE_COUNT = 36; //number of image_N.jpg faces shipped in projimages
+    public static final String GENERATED_PREFIX = "proc:"; //face path prefix for pair ids past the shipped faces, FaceGenerator draws those
+    private static final String[] FACE_PATHS = new String[FACE_COUNT]; //face image path for each pair id
+
+    static {
+        for (int i = 0; i < FACE_COUNT; i++) {
+            FACE_PATHS[i] = "/projimages/image_" + i + ".jpg";
+        }
+    }
+
+    private Deck() {
+    }
+
+    /**
+     * returns the image path of the face for a pair id. ids past the shipped faces get a generated face,
+     * their path is GENERATED_PREFIX followed by the id
+     * @param pairId
+     * @return the face path
+     */
+    public static String facePath(int pairId) {
+        if (pairId >= 0 && pairId < FACE_COUNT) {
+            return FACE_PATHS[pairId];
+        }
+        return GENERATED_PREFIX + pairId;
+    }
+
+    /**
+     * returns an unshuffled deck of size cards: pair ids 0, 0, 1, 1, 2, 2, ...
+     * an odd size leaves the last slot out, same as dealing size / 2 pairs
+     * @param size number of cards
+     * @return the pair ids
+     */
+    public static int[] pairs(int size) {
+        int[] deck = new int[(size / 2) * 2];
+        for (int i = 0; i < deck.length; i++) {
+            deck[i] = i / 2;
+        }
+        return deck;
+    }
+
+    /**
+     * deals a shuffled deck for a board of size cards, every face on it has its pair on it too.
+     * this is what CardGridPane deals from and what the simulator plays against
+     * @param size number of cards on the board
+     * @param random where the randomness comes from
+     * @return the shuffled pair ids
+     */
+    public static int[] deal(int size, RandomGenerator random) {
+        int[] deck = pairs(size);
+        shuffle(deck, random);
+        return deck;
+    }
+
+    /**
+     * shuffles the deck in place (Fisher-Yates)
+     * @param deck the pair ids to shuffle
+     * @param random where the randomness comes from, seed it to get the same shuffle again
+     */
+    public static void shuffle(int[] deck, RandomGenerator random) {
+        for (int i = deck.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = tmp;
+        }
+    }
+}
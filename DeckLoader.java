@@ -0,0 +1,164 @@
+/**
+ *  DeckLoader decodes card faces on background threads instead of the JavaFX application thread.
+ *  Decoded images go into the ImageCache, so once a load finishes the cards can pick their faces
+ *  up from the cache without any decoding on the FX thread. It's also used to pre-warm the faces
+ *  for the next game while the game over popup is still showing.
+ *  Every distinct face of a load is decoded (or drawn, for generated faces) at the same time on a pool with
+ *  one worker per core, so loading a board takes about faces / cores decodes instead of one after another.
+ *  Decoding is all cpu, so more threads than cores wouldn't make it any faster. A face that another load is
+ *  already decoding isn't decoded twice, the second load waits for the first one's.
+ *  How long each load takes from start to the last face goes into the "deck.load" histogram.
+ *
+ **/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeckLoader {
+    private static final LatencyHistogram LOAD_TIME = MetricsRegistry.getShared().histogram("deck.load"); //start of a load until its last face is ready
+    private static final DeckLoader shared = new DeckLoader(ImageCache.getShared(), GameSettings.getLoaderThreads());
+
+    private final ImageCache imageCache; //where the decoded faces end up
+    private final ThreadPoolExecutor executor; //background threads the decoding runs on
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>(); //faces being decoded right now, by path and size bucket
+
+    /**
+     * creates a loader that decodes into the given cache with one worker per core
+     * @param imageCache the cache to fill
+     */
+    public DeckLoader(ImageCache imageCache) {
+        this(imageCache, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * creates a loader that decodes into the given cache
+     * @param imageCache the cache to fill
+     * @param threads the most faces decoded at once
+     */
+    public DeckLoader(ImageCache imageCache, int threads) {
+        this.imageCache = imageCache;
+        AtomicInteger count = new AtomicInteger();
+        threads = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "deck-loader-" + count.incrementAndGet());
+            t.setDaemon(true); //don't keep the app alive after the window closes
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true); //the workers go away between deals
+    }
+
+    /**
+     * returns the loader shared by the whole game, it fills the shared ImageCache
+     * @return DeckLoader
+     */
+    public static DeckLoader getShared() {
+        return shared;
+    }
+
+    /**
+     * decodes every path that isn't cached yet on the worker threads
+     * @param paths the image paths to load, duplicates are fine
+     * @return a future that completes once every path is in the cache
+     */
+    public CompletableFuture<Void> load(Collection<String> paths) {
+        return load(paths, ImageCache.FULL_SIZE);
+    }
+
+    /**
+     * decodes every path that isn't cached at size yet, as many at once as there are workers
+     * @param paths the image paths to load, duplicates are fine
+     * @param size the size the images will be shown at, ImageCache.FULL_SIZE for the size the files are
+     * @return a future that completes once every path is in the cache
+     */
+    public CompletableFuture<Void> load(Collection<String> paths, int size) {
+        long start = System.nanoTime();
+        ArrayList<String> toLoad = new ArrayList<>();
+        ArrayList<CompletableFuture<Void>> loaded = new ArrayList<>(); //one per face toLoad, in the same order
+        ArrayList<CompletableFuture<Void>> waits = new ArrayList<>(); //everything this load waits for
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(paths);
+        for (String path : distinct) {
+            if (imageCache.peek(path, size) != null) {
+                continue;
+            }
+            CompletableFuture<Void> face = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(key(path, size), face);
+            if (running == null) {
+                toLoad.add(path);
+                loaded.add(face);
+                waits.add(face);
+            } else {
+                waits.add(running); //another load is decoding it already
+            }
+        }
+        //after the peeks the faces this board already has are the most recently used, so a smaller bound
+        //only drops images from earlier boards. +1 for the back image
+        imageCache.fitBoard(distinct.size() + 1);
+        if (waits.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        //no more tasks than workers, each one takes the next face until there are none left
+        AtomicInteger next = new AtomicInteger();
+        int tasks = Math.min(executor.getMaximumPoolSize(), toLoad.size());
+        for (int t = 0; t < tasks; t++) {
+            executor.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < toLoad.size()) {
+                    String path = toLoad.get(i);
+                    try {
+                        imageCache.get(path, size);
+                    } catch (RuntimeException e) {
+                        System.err.println("could not load " + path + ": " + e); //it shows as missing, the rest still load
+                    } finally {
+                        inFlight.remove(key(path, size));
+                        loaded.get(i).complete(null);
+                    }
+                }
+            });
+        }
+        return CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((done, ex) -> LOAD_TIME.record(System.nanoTime() - start));
+    }
+
+    /**
+     * in flight key of a face, by the ImageCache size bucket so two sizes that share a decode share the wait too
+     */
+    private static String key(String path, int size) {
+        return path + "@" + ImageCache.sizeBucket(size);
+    }
+
+    /**
+     * starts loading paths in the background and doesn't wait for it, used to get the next game ready early
+     * @param paths the image paths to warm up
+     */
+    public void prewarm(Collection<String> paths) {
+        load(paths);
+    }
+
+    /**
+     * same as prewarm(paths) for images that will be shown at size
+     * @param paths the image paths to warm up
+     * @param size the size they'll be shown at
+     */
+    public void prewarm(Collection<String> paths, int size) {
+        load(paths, size);
+    }
+
+    /**
+     * returns the image cache this loader fills
+     * @return ImageCache
+     */
+    public ImageCache getImageCache() {
+        return imageCache;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+}
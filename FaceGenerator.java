@@ -0,0 +1,195 @@
+/**
+ *  FaceGenerator draws card faces for pair ids past the shipped image_N.jpg files, so boards can have as many
+ *  pairs as they need. Each face is a mix of a background colour, a pattern, a glyph shape and a glyph colour
+ *  picked from the pair id, plus a ring of little dots around the edge that spell the id in binary so no two
+ *  faces can ever come out the same.
+ *  It only writes pixels into a WritableImage, so it's safe to run on worker threads off the FX thread.
+ *
+ **/
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+public class FaceGenerator {
+    public static final String PREFIX = Deck.GENERATED_PREFIX; //image paths starting with this are generated, the rest is the pair id
+    public static final int DEFAULT_SIZE = 32; //side length in pixels of a generated face
+    private static final int HUES = 24;
+    private static final int PATTERNS = 6;
+    private static final int SHAPES = 8;
+    private static final int ID_BITS = 20; //edge dots, enough for about a million pairs
+
+    private FaceGenerator() {
+    }
+
+    /**
+     * returns true if path names a generated face instead of an image file
+     * @param path image path
+     * @return boolean
+     */
+    public static boolean isGenerated(String path) {
+        return path.startsWith(PREFIX);
+    }
+
+    /**
+     * returns the pair id a generated face path stands for
+     * @param path a path starting with PREFIX
+     * @return the pair id
+     */
+    public static int pairIdOf(String path) {
+        return Integer.parseInt(path.substring(PREFIX.length()));
+    }
+
+    /**
+     * draws the face for a pair id. the same id always gives the same picture
+     * @param pairId the pair id
+     * @param size side length in pixels
+     * @return the face image
+     */
+    public static WritableImage generate(int pairId, int size) {
+        int id = Math.max(0, pairId);
+        int hue = id % HUES;
+        int pattern = (id / HUES) % PATTERNS;
+        int shape = (id / (HUES * PATTERNS)) % SHAPES;
+        int background = hsb(hue * 360.0 / HUES, 0.45, 0.95);
+        int patternColor = hsb(hue * 360.0 / HUES, 0.6, 0.8);
+        int glyphColor = hsb((hue * 360.0 / HUES + 180 + shape * 25) % 360, 0.85, 0.45);
+
+        int[] pixels = new int[size * size];
+        double c = (size - 1) / 2.0;
+        double radius = size * 0.3;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int argb = inPattern(pattern, x, y, size) ? patternColor : background;
+                if (inShape(shape, (x - c) / radius, (y - c) / radius)) {
+                    argb = glyphColor;
+                }
+                pixels[y * size + x] = argb;
+            }
+        }
+        drawIdBits(pixels, size, id);
+
+        WritableImage image = new WritableImage(size, size);
+        image.getPixelWriter().setPixels(0, 0, size, size, PixelFormat.getIntArgbInstance(), pixels, 0, size);
+        return image;
+    }
+
+    /**
+     * true if x, y is on the pattern part of the background
+     */
+    private static boolean inPattern(int pattern, int x, int y, int size) {
+        int cell = Math.max(2, size / 8);
+        switch (pattern) {
+            case 0:
+                return false; //plain
+            case 1:
+                return (y / cell) % 2 == 0; //horizontal stripes
+            case 2:
+                return (x / cell) % 2 == 0; //vertical stripes
+            case 3:
+                return ((x / cell) + (y / cell)) % 2 == 0; //checkers
+            case 4:
+                return ((x + y) / cell) % 2 == 0; //diagonal stripes
+            default:
+                int dx = x % (cell * 2) - cell;
+                int dy = y % (cell * 2) - cell;
+                return dx * dx + dy * dy < cell * cell / 2; //dots
+        }
+    }
+
+    /**
+     * true if the point (in glyph units, the glyph spans -1 to 1) is inside the glyph shape
+     */
+    private static boolean inShape(int shape, double u, double v) {
+        double au = Math.abs(u);
+        double av = Math.abs(v);
+        switch (shape) {
+            case 0:
+                return u * u + v * v <= 1; //circle
+            case 1:
+                return au <= 0.85 && av <= 0.85; //square
+            case 2:
+                return au + av <= 1; //diamond
+            case 3:
+                return v <= 0.8 && v >= -1 + 2 * au * 0.9; //triangle
+            case 4:
+                return (au <= 0.3 && av <= 1) || (av <= 0.3 && au <= 1); //plus
+            case 5:
+                return Math.abs(au - av) <= 0.3 && au <= 0.95; //x
+            case 6:
+                double r = u * u + v * v;
+                return r <= 1 && r >= 0.45; //ring
+            default:
+                double angle = Math.atan2(v, u);
+                double star = 0.55 + 0.45 * Math.abs(Math.cos(angle * 2.5));
+                return Math.sqrt(u * u + v * v) <= star; //star
+        }
+    }
+
+    /**
+     * puts a dot for every bit of the id along the edge of the face, dark for 1 and light for 0
+     */
+    private static void drawIdBits(int[] pixels, int size, int id) {
+        int dot = Math.max(1, size / 16);
+        int perSide = ID_BITS / 4;
+        double step = (size - dot) / (double) (perSide + 1);
+        for (int bit = 0; bit < ID_BITS; bit++) {
+            int side = bit / perSide;
+            int along = (int) Math.round(step * (bit % perSide + 1));
+            int x;
+            int y;
+            if (side == 0) {
+                x = along;
+                y = 0;
+            } else if (side == 1) {
+                x = size - dot;
+                y = along;
+            } else if (side == 2) {
+                x = size - dot - along;
+                y = size - dot;
+            } else {
+                x = 0;
+                y = size - dot - along;
+            }
+            int argb = ((id >>> bit) & 1) == 1 ? 0xFF202020 : 0xFFF0F0F0;
+            for (int dy = 0; dy < dot; dy++) {
+                for (int dx = 0; dx < dot; dx++) {
+                    pixels[(y + dy) * size + x + dx] = argb;
+                }
+            }
+        }
+    }
+
+    /**
+     * converts a hue/saturation/brightness colour to an opaque argb int
+     */
+    private static int hsb(double hue, double saturation, double brightness) {
+        double h = (hue % 360) / 60.0;
+        double chroma = brightness * saturation;
+        double x = chroma * (1 - Math.abs(h % 2 - 1));
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        if (h < 1) {
+            r = chroma;
+            g = x;
+        } else if (h < 2) {
+            r = x;
+            g = chroma;
+        } else if (h < 3) {
+            g = chroma;
+            b = x;
+        } else if (h < 4) {
+            g = x;
+            b = chroma;
+        } else if (h < 5) {
+            r = x;
+            b = chroma;
+        } else {
+            r = chroma;
+            b = x;
+        }
+        double m = brightness - chroma;
+        return 0xFF000000 | ((int) Math.round((r + m) * 255) << 16)
+                | ((int) Math.round((g + m) * 255) << 8) | (int) Math.round((b + m) * 255);
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ *  FrameRateMonitor measures the time between JavaFX pulses with an AnimationTimer, to check the game keeps to
+ *  its frame budget (16.7ms at 60 fps). Every frame goes into the "fx.frameTime" histogram, frames while cards
+ *  are flipping also go into "card.flipFrameTime", and frames over budget are counted in "fx.slowFrames".
+ *  The frames per second are worked out from the last second of frame times kept in a ring, so reading them
+ *  doesn't allocate.
+ *  An AnimationTimer keeps the pulses going every frame while it runs, so the monitor is only started when
+ *  something wants it: -Dmemorygame.fpsCheck=true (which prints a summary every few seconds) or the
+ *  performance overlay.
+ *
+ **/
+
+import javafx.animation.AnimationTimer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FrameRateMonitor {
+    public static final long FRAME_BUDGET_NANOS = 1_000_000_000L / 60; //one frame at 60 fps
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(5); //how often fpsCheck prints a summary
+    private static final int RING = 256; //frame timestamps kept, more than a second's worth at 60 fps
+    private static final FrameRateMonitor shared = new FrameRateMonitor();
+
+    private final LatencyHistogram frameTimes = MetricsRegistry.getShared().histogram("fx.frameTime");
+    private final LatencyHistogram flipFrameTimes = MetricsRegistry.getShared().histogram("card.flipFrameTime");
+    private final LongAdder slowFrames = MetricsRegistry.getShared().counter("fx.slowFrames");
+    private final long[] stamps = new long[RING]; //pulse timestamps, stamps[count % RING] is the next one
+    private long count; //pulses seen since start
+    private long lastReport; //when fpsCheck last printed
+    private int users; //start() calls not matched by stop() yet
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame(now);
+        }
+    };
+
+    /**
+     * returns the monitor shared by the whole app
+     * @return FrameRateMonitor
+     */
+    public static FrameRateMonitor getShared() {
+        return shared;
+    }
+
+    /**
+     * starts measuring, if it isn't already. each start() needs a stop() when the caller is done with it.
+     * FX thread only
+     */
+    public void start() {
+        if (users++ == 0) {
+            count = 0;
+            lastReport = System.nanoTime();
+            timer.start();
+        }
+    }
+
+    /**
+     * stops measuring once everyone that started it has stopped it. FX thread only
+     */
+    public void stop() {
+        if (users > 0 && --users == 0) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * returns true while the monitor is measuring
+     * @return boolean
+     */
+    public boolean isRunning() {
+        return users > 0;
+    }
+
+    private void frame(long now) {
+        if (count > 0) {
+            long frameTime = now - stamps[(int) ((count - 1) % RING)];
+            frameTimes.record(frameTime);
+            if (Card.getFlipsRunning() > 0) {
+                flipFrameTimes.record(frameTime);
+            }
+            if (frameTime > FRAME_BUDGET_NANOS + FRAME_BUDGET_NANOS / 2) {
+                slowFrames.increment(); //half a frame of slack, a pulse that's a bit late isn't a dropped frame
+            }
+        }
+        stamps[(int) (count % RING)] = now;
+        count++;
+        if (GameSettings.isFpsCheck() && now - lastReport >= REPORT_NANOS) {
+            lastReport = now;
+            report();
+        }
+    }
+
+    /**
+     * returns the frames per second over the last second, or over what has been measured if that's less
+     * @return fps
+     */
+    public double getFps() {
+        if (count < 2) {
+            return 0;
+        }
+        long newest = stamps[(int) ((count - 1) % RING)];
+        long frames = 0;
+        long oldest = newest;
+        for (long i = count - 2; i >= 0 && i >= count - RING; i--) {
+            long stamp = stamps[(int) (i % RING)];
+            if (newest - stamp > 1_000_000_000L) {
+                break;
+            }
+            oldest = stamp;
+            frames++;
+        }
+        return frames == 0 ? 0 : frames * 1e9 / (newest - oldest);
+    }
+
+    /**
+     * returns the histogram of the time between frames
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * returns the histogram of the time between frames while cards were flipping
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getFlipFrameTimes() {
+        return flipFrameTimes;
+    }
+
+    /**
+     * prints the frame rate and whether frames are keeping to the budget, overall and while cards flip
+     */
+    public void report() {
+        LatencyHistogram.Summary all = frameTimes.summary();
+        LatencyHistogram.Summary flips = flipFrameTimes.summary();
+        double budget = FRAME_BUDGET_NANOS / 1e6;
+        System.out.printf("fps %.1f, frame p50 %.1fms p99 %.1fms, %d slow frames; while flipping: %d frames, p99 %.1fms (%s)%n",
+                getFps(), all.getP50Millis(), all.getP99Millis(), slowFrames.sum(), flips.getCount(),
+                flips.getP99Millis(), flips.getCount() == 0 ? "no flips yet"
+                        : flips.getP99Millis() <= budget * 1.5 ? "within budget" : "over budget");
+    }
+}
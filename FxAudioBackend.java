@@ -0,0 +1,129 @@
+/**
+ *  FxAudioBackend plays sounds with JavaFX media.
+ *  Short sounds are AudioClips, which JavaFX decodes into memory once, so after preload() a click plays its
+ *  sound straight out of the buffer. Long tracks (the victory music) get a MediaPlayer when they start,
+ *  which streams the file instead of decoding all of it up front, and the player is disposed as soon as
+ *  the track ends or is stopped so nothing stays in memory between wins.
+ *  A sound that can't be loaded is skipped, the game never fails because of audio.
+ *
+ **/
+
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+import java.net.URL;
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FxAudioBackend implements AudioBackend {
+    private final ConcurrentHashMap<Sound, AudioClip> clips = new ConcurrentHashMap<>(); //short sounds, loaded once
+    private final EnumMap<Sound, MediaPlayer> players = new EnumMap<>(Sound.class); //long tracks that are playing right now
+
+    /**
+     * creates the backend, nothing is loaded until preload() or the first play()
+     */
+    public FxAudioBackend() {
+        AudioClip.class.getName(); //fails here instead of on the first click if javafx.media isn't there
+    }
+
+    @Override
+    public void preload() {
+        Thread thread = new Thread(() -> {
+            for (Sound sound : Sound.values()) {
+                if (!sound.isStreamed()) {
+                    clip(sound);
+                }
+            }
+        }, "audio-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void play(Sound sound) {
+        if (sound.isStreamed()) {
+            stream(sound);
+        } else {
+            AudioClip clip = clip(sound);
+            if (clip != null) {
+                clip.play();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop(Sound sound) {
+        if (sound.isStreamed()) {
+            release(sound, players.get(sound));
+        } else {
+            AudioClip clip = clips.get(sound);
+            if (clip != null) {
+                clip.stop();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Sound sound : Sound.values()) {
+            stop(sound);
+        }
+        clips.clear();
+    }
+
+    /**
+     * returns the loaded clip for a short sound, loading it if preload hasn't got to it yet.
+     * if preload is loading it right now this waits for that instead of loading it twice
+     */
+    private AudioClip clip(Sound sound) {
+        AudioClip clip = clips.get(sound);
+        if (clip != null) {
+            return clip;
+        }
+        try {
+            return clips.computeIfAbsent(sound, s -> new AudioClip(url(s).toExternalForm()));
+        } catch (RuntimeException e) {
+            System.err.println("couldn't load " + sound.getResource() + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * starts streaming a long track, restarting it if it's already playing
+     */
+    private synchronized void stream(Sound sound) {
+        release(sound, players.get(sound));
+        MediaPlayer player;
+        try {
+            player = new MediaPlayer(new Media(url(sound).toExternalForm()));
+        } catch (RuntimeException e) {
+            System.err.println("couldn't stream " + sound.getResource() + ": " + e);
+            return;
+        }
+        player.setOnEndOfMedia(() -> release(sound, player));
+        player.setOnError(() -> release(sound, player));
+        players.put(sound, player);
+        player.play();
+    }
+
+    /**
+     * stops and disposes a streamed track's player, if it's still the current one
+     */
+    private synchronized void release(Sound sound, MediaPlayer player) {
+        if (player == null) {
+            return;
+        }
+        player.stop();
+        player.dispose();
+        players.remove(sound, player);
+    }
+
+    private static URL url(Sound sound) {
+        URL url = FxAudioBackend.class.getResource(sound.getResource());
+        if (url == null) {
+            throw new IllegalStateException(sound.getResource() + " is missing");
+        }
+        return url;
+    }
+}
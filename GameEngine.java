@@ -0,0 +1,258 @@
+/**
+ *  GameEngine holds the rules of Concentration with no JavaFX in it at all.
+ *  The board is a flat array of pair ids (index = row * cols + col) plus bitsets for which cards are
+ *  face up and which are matched, so it can be used for simulations, tests or a server without a Stage.
+ *  GamePane is a view on top of it: it forwards clicks to flip() and calls resolve() when the reveal delay is over.
+ *
+ **/
+
+import java.util.Arrays;
+
+public class GameEngine {
+    public static final int IGNORED = 0; //flip() result: the card can't be flipped right now
+    public static final int FIRST = 1; //flip() result: first card of a pair is face up
+    public static final int SECOND = 2; //flip() result: second card is face up, the pair is waiting for resolve()
+
+    private int rows;
+    private int cols;
+    private int[] pairIds; //pair id of every card, two cards with the same id match
+    private long[] flipped; //bitset of cards that are face up
+    private long[] matched; //bitset of cards that have been matched
+    private int firstIndex; //card flipped first in the pair being picked, -1 if none
+    private int pairFirst; //the last pair that was completed, what the caller should resolve
+    private int pairSecond;
+    private int pendingPairs; //pairs that are face up and haven't been resolved yet
+    private int matchedPairs; //number of pairs found so far
+    private int turns; //number of pairs resolved, matched or not
+    private boolean fastPlay; //lets new cards be flipped while earlier pairs are still waiting to be resolved
+
+    /**
+     * creates an engine with an empty board, call deal() before playing
+     */
+    public GameEngine() {
+        deal(0, 0, new int[0]);
+    }
+
+    /**
+     * creates an engine and deals the given board
+     * @param rows
+     * @param cols
+     * @param pairIds pair id of each card, row by row
+     */
+    public GameEngine(int rows, int cols, int[] pairIds) {
+        deal(rows, cols, pairIds);
+    }
+
+    /**
+     * starts a new game on the given board, everything face down and nothing matched
+     * @param rows
+     * @param cols
+     * @param pairIds pair id of each card, row by row. the array is used as is, not copied
+     */
+    public void deal(int rows, int cols, int[] pairIds) {
+        if (pairIds.length != rows * cols) {
+            throw new IllegalArgumentException("expected " + (rows * cols) + " pair ids, got " + pairIds.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.pairIds = pairIds;
+        int words = (pairIds.length + 63) >>> 6;
+        if (flipped == null || flipped.length != words) {
+            flipped = new long[words];
+            matched = new long[words];
+        } else {
+            Arrays.fill(flipped, 0L);
+            Arrays.fill(matched, 0L);
+        }
+        firstIndex = -1;
+        pairFirst = -1;
+        pairSecond = -1;
+        pendingPairs = 0;
+        matchedPairs = 0;
+        turns = 0;
+    }
+
+    /**
+     * puts the engine back into a saved state, used to resume a game from a GameSnapshot.
+     * a single face up card comes back as the first card of the pair being picked. GameSnapshot.capture only
+     * saves that card, pairs that were waiting for their check are left out since the reveal delay ran out while
+     * the game was closed. if more than one card is face up anyway there's no telling which one was picked
+     * first, so they're all turned back face down, no turn is counted either way
+     * @param rows
+     * @param cols
+     * @param pairIds pair id of each card, row by row. used as is, not copied
+     * @param flippedBits bitset of face up cards
+     * @param matchedBits bitset of matched cards
+     * @param turns turns taken so far
+     */
+    public void restore(int rows, int cols, int[] pairIds, long[] flippedBits, long[] matchedBits, int turns) {
+        deal(rows, cols, pairIds);
+        if (flippedBits.length != flipped.length || matchedBits.length != matched.length) {
+            throw new IllegalArgumentException("bitsets don't fit a " + rows + "x" + cols + " board");
+        }
+        int faceUp = 0;
+        int lone = -1;
+        for (int i = 0; i < matched.length; i++) {
+            matched[i] = matchedBits[i];
+            matchedPairs += Long.bitCount(matchedBits[i]);
+            long up = flippedBits[i] & ~matchedBits[i];
+            faceUp += Long.bitCount(up);
+            if (up != 0) {
+                lone = (i << 6) + Long.numberOfTrailingZeros(up);
+            }
+        }
+        matchedPairs /= 2;
+        if (faceUp == 1) {
+            set(flipped, lone);
+            firstIndex = lone;
+        }
+        this.turns = turns;
+    }
+
+    /**
+     * returns a copy of the face up bitset, bit i is card i
+     * @return long[]
+     */
+    public long[] getFlippedBits() {
+        return flipped.clone();
+    }
+
+    /**
+     * returns a copy of the matched bitset, bit i is card i
+     * @return long[]
+     */
+    public long[] getMatchedBits() {
+        return matched.clone();
+    }
+
+    /**
+     * tries to turn a card face up. matched cards, cards that are already face up and (unless fast play is on)
+     * clicks while a pair is still waiting to be resolved are ignored
+     * @param index card index, row * cols + col
+     * @return IGNORED, FIRST, or SECOND (then getPairFirst/getPairSecond hold the pair to resolve)
+     */
+    public int flip(int index) {
+        if (index < 0 || index >= pairIds.length || (pendingPairs > 0 && !fastPlay)
+                || isSet(flipped, index) || isSet(matched, index)) {
+            return IGNORED;
+        }
+        set(flipped, index);
+        if (firstIndex < 0) {
+            firstIndex = index;
+            return FIRST;
+        }
+        pairFirst = firstIndex;
+        pairSecond = index;
+        firstIndex = -1;
+        pendingPairs++;
+        return SECOND;
+    }
+
+    /**
+     * settles a pair that was turned face up: a match is marked matched, otherwise both go back face down
+     * @param a index of one card of the pair
+     * @param b index of the other card
+     * @return true if the two cards matched
+     */
+    public boolean resolve(int a, int b) {
+        if (!isSet(flipped, a) || !isSet(flipped, b)) {
+            throw new IllegalStateException("cards " + a + " and " + b + " aren't a face up pair");
+        }
+        clear(flipped, a);
+        clear(flipped, b);
+        pendingPairs--;
+        turns++;
+        if (pairIds[a] == pairIds[b]) {
+            set(matched, a);
+            set(matched, b);
+            matchedPairs++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * returns true once every pair on the board has been matched
+     * @return boolean
+     */
+    public boolean isSolved() {
+        return matchedPairs == pairIds.length / 2;
+    }
+
+    /**
+     * turns fast play on or off. with it on, cards can keep being flipped while earlier pairs wait to be resolved,
+     * so several pairs can be pending at once
+     * @param fastPlay
+     */
+    public void setFastPlay(boolean fastPlay) {
+        this.fastPlay = fastPlay;
+    }
+
+    public boolean isFastPlay() {
+        return fastPlay;
+    }
+
+    public boolean isFlipped(int index) {
+        return isSet(flipped, index);
+    }
+
+    public boolean isMatched(int index) {
+        return isSet(matched, index);
+    }
+
+    public int getPairId(int index) {
+        return pairIds[index];
+    }
+
+    /**
+     * returns the card flipped first in the pair being picked, -1 if none
+     * @return int
+     */
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public int getPairFirst() {
+        return pairFirst;
+    }
+
+    public int getPairSecond() {
+        return pairSecond;
+    }
+
+    public int getPendingPairs() {
+        return pendingPairs;
+    }
+
+    public int getMatchedPairs() {
+        return matchedPairs;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getCardCount() {
+        return pairIds.length;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *  GameEvents holds the game's Java Flight Recorder events. They cost next to nothing unless a recording is
+ *  running, and show up under "Memory Game" in JDK Mission Control, for example after
+ *  java -XX:StartFlightRecording=filename=game.jfr ... Main
+ *
+ **/
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public class GameEvents {
+    private GameEvents() {
+    }
+
+    /**
+     * CardGridPane.initCards laying out and dealing a board
+     */
+    @Name("memorygame.InitCards")
+    @Label("Init Cards")
+    @Category("Memory Game")
+    @Description("a board being laid out and dealt")
+    public static class InitCards extends Event {
+        @Label("Rows")
+        public int rows;
+        @Label("Columns")
+        public int cols;
+        @Label("Card Size")
+        public int cardSize;
+    }
+
+    /**
+     * ImageCache handing out an image, decoded (or drawn) or straight from the cache
+     */
+    @Name("memorygame.ImageLoad")
+    @Label("Image Load")
+    @Category("Memory Game")
+    @Description("a card image looked up in the ImageCache, the duration is the decode on a miss")
+    public static class ImageLoad extends Event {
+        @Label("Path")
+        public String path;
+        @Label("Size")
+        public int size;
+        @Label("Bytes")
+        @Description("decoded size, width * height * 4")
+        public long bytes;
+        @Label("Cache Hit")
+        public boolean cacheHit;
+    }
+
+    /**
+     * a click on a card until the frame showing it flipped
+     */
+    @Name("memorygame.Flip")
+    @Label("Flip")
+    @Category("Memory Game")
+    @Description("a card click until the pulse that shows the card flipped")
+    public static class Flip extends Event {
+        @Label("Card")
+        public int index;
+        @Label("Result")
+        @Description("1 for the first card of a pair, 2 for the second")
+        public int result;
+    }
+
+    /**
+     * a face up pair being resolved
+     */
+    @Name("memorygame.Match")
+    @Label("Match")
+    @Category("Memory Game")
+    @Description("a face up pair being checked")
+    public static class Match extends Event {
+        @Label("First Card")
+        public int first;
+        @Label("Second Card")
+        public int second;
+        @Label("Matched")
+        public boolean matched;
+        @Label("Turns")
+        public int turns;
+    }
+}
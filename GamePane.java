@@ -6,27 +6,43 @@
  * - The CardGridPane containing the cards
  * - A status bar for game info like the turn count
  * - A command pane with controls to start a new game, select difficulty, and exit
- * - Game logic such as handling card clicks, checking matches, and managing the animation timer
+ * - Game logic such as handling card clicks, checking matches, and scheduling when face up pairs are checked
+ * the rules themselves live in a GameEngine, GamePane passes clicks to it and shows the results on the cards.
+ * every deal, flip and resolve can be written to a MoveLog, and a logged game can be played back with MoveLogReplayer.
+ * the game in progress is saved as a GameSnapshot when the app closes and picked back up at the next start.
  **/
 
-import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
-import javafx.scene.media.AudioClip;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
 
 import static javafx.scene.paint.Color.rgb;
 
 public class GamePane extends BorderPane {
+    private static final LatencyHistogram FLIP_LATENCY = MetricsRegistry.getShared().histogram("game.flipLatency"); //click until the frame showing the flip
+    private static final LatencyHistogram RESOLVE_TIME = MetricsRegistry.getShared().histogram("game.resolve"); //time spent checking a pair
+    private static final LongAdder FLIPS = MetricsRegistry.getShared().counter("game.flips");
+    private static final LongAdder IGNORED_CLICKS = MetricsRegistry.getShared().counter("game.ignoredClicks");
+    private static final LongAdder MATCHES = MetricsRegistry.getShared().counter("game.matches");
+    private static final LongAdder MISMATCHES = MetricsRegistry.getShared().counter("game.misses");
+    private static final LongAdder GAMES_WON = MetricsRegistry.getShared().counter("game.won");
+
     private CardGridPane cgp;
-    private HBox statusPane; //e game status information (e.g. the number turns and the game timer
+    private HBox statusPane; //e game status information (e.g. the number turns and the game timer, holds the performance overlay when it's shown
     private HBox commandPane; //with controls for setting the level, starting a new game and exiting the application.
     private Button exitButton; //closes the window
     private Button newGame; //starts a new game
@@ -34,150 +50,79 @@ public class GamePane extends BorderPane {
     private Label turns; //shows the number of matches achieved so far in the game
     private Card clickedCardOne; //provides functionality for matches
     private Card clickedCardTwo; //provides functionality for matches
-    private AnimationTimer timer; //controls how long the faces of the cards are shown
+    private RevealScheduler revealScheduler; //checks each face up pair once the reveal delay is up
     private int rows;
     private int cols;
-    private int numClicks; //controls matching functionality
+    private GameEngine engine; //the game rules and board state, the cards just show what it says
     private int numMatched; //number of matches achieved in game, increases
     private String level; //variable to hold combobox level, so the newgame functionality works
-    private long startTime; //works with animation timer to make it so the card faces are shown for 0.8 secs
-    private AudioClip matchSound; //plays when a match
-    private AudioClip notMatch; //plays when no match
-    private AudioClip victory; //plays win all matches found
+    private AudioBackend audio; //plays the match, no match and victory sounds
+    private int baseCardSize; //card size the pane was made with, big boards shrink their cards from this
+    private static final int BOARD_PIXELS = 800; //big boards are shrunk to fit about this many pixels across
+    private static final int MIN_CARD_SIZE = 4; //cards never get smaller than this
+    private MoveLog moveLog; //where deals, flips and resolves are logged, null if logging is off
+    private Leaderboard leaderboard; //best results of every level, a won game is recorded in gameOver
+    private boolean replaying; //true while a MoveLogReplayer is playing into this pane, clicks are ignored
+    private long lastFlipLatencyNanos; //click to flip latency of the last flip, shown by the performance overlay
+    private PerformanceOverlay overlay; //made the first time it's shown, lives in statusPane
+    private long flipClickedAt; //System.nanoTime() of the click on a card that hasn't been on screen flipped yet, 0 if none
+    private GameEvents.Flip flipEvent; //flight recorder event for that click
+    private final Runnable flipPulse = this::flipShown; //the pulse listener, kept so it can be removed again
+    private long gameStartNanos; //when the current game started, moved back by the saved time when a game is resumed
 
 
     /**
      * no-arg constructor for GamePane
-     * initializes all the fields and adds some of them to the borderpane
-     * also holds the handle() method for the animation timer
-     * and the event handlers for the combobox, newGame button, and exitButton button
+     * initializes all the fields and adds some of them to the borderpane, with 100 pixel cards
      * @throws FileNotFoundException, RuntimeException
      */
     public GamePane() throws FileNotFoundException, RuntimeException {
-        matchSound = new AudioClip(getClass().getResource("/beep.mp3").toString());
-        notMatch = new AudioClip(getClass().getResource("/chime.mp3").toString());
-        victory = new AudioClip(getClass().getResource("/bvictory.mp3").toString());
-        timer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                long elapsedMillis = (now - startTime) / 1_000_000;
-                if (elapsedMillis >= 800) {
-                    try {
-                        checkMatch();
-                    } catch (FileNotFoundException e) {
-                        throw new RuntimeException(e);
-                    }
-                    timer.stop();
-                }
-
-            }
-        };
-        cgp = new CardGridPane(this);
-        cgp.setCardSize(100);
-        cgp.createCardImageList(64);
-        cgp.setCardImages();
-        HBox turnBox = new HBox();
-        turns = new Label("turns: " + numMatched);
-        turns.setPrefSize(50, 50);
-        turnBox.setAlignment(Pos.CENTER);
-        turnBox.getChildren().add(turns);
-        statusPane = new HBox();
-        commandPane = new HBox();
-        ObservableList<String> levels = FXCollections.observableArrayList("level one", "level two", "level three", "level four", "level five", "level six");
-        menu = new ComboBox(levels);
-        menu.setBackground(Background.fill(rgb(196, 195, 178)));
-        menu.setPromptText("levels");
-        menu.setOnAction(e-> {
-             level = menu.valueProperty().get();
-            if (level.equals("level one")) {
-                rows = 2;
-                cols = 3;
-            } else if (level.equals("level two")){
-                rows = 2;
-                cols = 4;
-
-            } else if (level.equals("level three")){
-                rows = 4;
-                cols = 4;
-            } else if (level.equals("level four")){
-                rows = 4;
-                cols = 6;
-
-            } else if (level.equals("level five")){
-                rows = 6;
-                cols = 6;
-            } else {
-                rows = 8;
-                cols = 8;
-            }
-            try {
-                numClicks = 0;
-                turns.setText("turns: " + numMatched);
-                cgp.initCards(rows, cols);
-            } catch (FileNotFoundException ex) {
-                throw new RuntimeException(ex);
-            }
-
-        });
-
-        exitButton = new Button("exit");
-        exitButton.setBackground(Background.fill(rgb(196, 195, 178)));
-        exitButton.setOnAction(e -> {
-            Stage stage = (Stage) exitButton.getScene().getWindow();
-            stage.close();
-        });
-        newGame = new Button("new game");
-        newGame.setBackground(Background.fill(rgb(196, 195, 178)));
-        newGame.setOnMousePressed( event -> {
-            try {
-                newGame();
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException(e);
-            }
-        });
-        commandPane.getChildren().addAll(menu, newGame, exitButton);
-        commandPane.setAlignment(Pos.CENTER);
-        commandPane.setSpacing(10);
-        this.setTop(turnBox);
-        this.setCenter(cgp);
-        this.setBottom(commandPane);
-        this.setBackground(Background.fill(rgb(223, 222, 209)));
-
+        init(100);
     }
 
 
     /**
      * constructor for GamePane
      * initializes all the fields and adds some of them to the borderpane
-     * also holds the handle() method for the animation timer
-     * and the event handlers for the combobox, newGame button, and exitButton button
      * puts a user defined cardSize into the arguments of the CardGridPane constructor
      * @param cardSize
      * @throws FileNotFoundException, RuntimeException
      */
     public GamePane(int cardSize) throws FileNotFoundException, RuntimeException {
-        matchSound = new AudioClip(getClass().getResource("/beep.mp3").toString());
-        notMatch = new AudioClip(getClass().getResource("/chime.mp3").toString());
-        victory = new AudioClip(getClass().getResource("/bvictory.mp3").toString());
-        timer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                long elapsedMillis = (now - startTime) / 1_000_000;
-                if (elapsedMillis >= 800) {
-                    try {
-                        checkMatch();
-                    } catch (FileNotFoundException e) {
-                        throw new RuntimeException(e);
-                    }
-                    timer.stop();
-                }
+        init(cardSize);
+    }
 
-            }
-        };
-        cgp = new CardGridPane(this);
-        cgp.setCardSize(cardSize);
-        cgp.createCardImageList(64);
-        cgp.setCardImages();
+
+    /**
+     * the setup both constructors share: initializes all the fields and adds some of them to the borderpane,
+     * sets up the reveal scheduler, deals the first board or picks the saved game back up,
+     * and the event handlers for the combobox, newGame button, exitButton button and the F3 overlay key
+     * @param cardSize card size for boards that fit on screen, bigger boards shrink from it
+     * @throws FileNotFoundException
+     */
+    private void init(int cardSize) throws FileNotFoundException {
+        revealScheduler = new RevealScheduler();
+        moveLog = MoveLog.open();
+        leaderboard = Leaderboard.open();
+        audio = AudioBackend.create();
+        baseCardSize = cardSize;
+        GameSnapshot snapshot = loadSnapshot();
+        if (snapshot == null) {
+            //the starting board is dealt once, right here
+            cgp = new CardGridPane(this, cardSizeFor(Level.SIX.getRows(), Level.SIX.getCols()),
+                    renderModeFor(Level.SIX.getRows(), Level.SIX.getCols()), Level.SIX.getRows(), Level.SIX.getCols());
+        } else {
+            //build the saved board directly instead of dealing the default one first
+            cgp = new CardGridPane(this, cardSizeFor(snapshot.getRows(), snapshot.getCols()),
+                    renderModeFor(snapshot.getRows(), snapshot.getCols()), snapshot);
+        }
+        engine = new GameEngine();
+        engine.setFastPlay(GameSettings.isFastPlay());
+        if (snapshot == null) {
+            dealEngine();
+        } else {
+            resume(snapshot);
+        }
         HBox turnBox = new HBox();
         turns = new Label("turns: " + numMatched);
         turns.setPrefSize(50, 50);
@@ -185,36 +130,28 @@ public class GamePane extends BorderPane {
         turnBox.getChildren().add(turns);
         statusPane = new HBox();
         commandPane = new HBox();
-        ObservableList<String> levels = FXCollections.observableArrayList("level one", "level two", "level three", "level four", "level five", "level six");
+        ObservableList<String> levels = FXCollections.observableArrayList();
+        for (Level l : Level.values()) {
+            if (!l.isLarge() || GameSettings.isLargeBoards()) {
+                levels.add(l.getName());
+            }
+        }
         menu = new ComboBox(levels);
+        menu.setBackground(Background.fill(rgb(196, 195, 178)));
         menu.setPromptText("levels");
+        if (snapshot != null && snapshot.getLevel() != null) {
+            level = snapshot.getLevel().getName();
+            menu.setValue(level); //set before the handler is added so it doesn't deal a new board
+        }
         menu.setOnAction(e-> {
-            level = menu.valueProperty().get();
-            if (level.equals("level one")) {
-                rows = 2;
-                cols = 3;
-            } else if (level.equals("level two")){
-                rows = 2;
-                cols = 4;
-
-            } else if (level.equals("level three")){
-                rows = 4;
-                cols = 4;
-            } else if (level.equals("level four")){
-                rows = 4;
-                cols = 6;
-
-            } else if (level.equals("level five")){
-                rows = 6;
-                cols = 6;
-            } else {
-                rows = 8;
-                cols = 8;
-            }
+             level = menu.valueProperty().get();
+            rows = Level.fromName(level).getRows();
+            cols = Level.fromName(level).getCols();
             try {
-                numClicks = 0;
+                revealScheduler.cancelAll(); //the cards are reused, so a pending check from the old board mustn't touch them
+                initBoard(rows, cols);
+                dealEngine();
                 turns.setText("turns: " + numMatched);
-                cgp.initCards(rows, cols);
             } catch (FileNotFoundException ex) {
                 throw new RuntimeException(ex);
             }
@@ -222,11 +159,13 @@ public class GamePane extends BorderPane {
         });
 
         exitButton = new Button("exit");
+        exitButton.setBackground(Background.fill(rgb(196, 195, 178)));
         exitButton.setOnAction(e -> {
             Stage stage = (Stage) exitButton.getScene().getWindow();
             stage.close();
         });
         newGame = new Button("new game");
+        newGame.setBackground(Background.fill(rgb(196, 195, 178)));
         newGame.setOnMousePressed( event -> {
             try {
                 newGame();
@@ -236,127 +175,531 @@ public class GamePane extends BorderPane {
         });
         commandPane.getChildren().addAll(menu, newGame, exitButton);
         commandPane.setAlignment(Pos.CENTER);
+        commandPane.setSpacing(10);
         this.setTop(turnBox);
         this.setCenter(cgp);
         this.setBottom(commandPane);
         this.setBackground(Background.fill(rgb(223, 222, 209)));
+        watchPulses();
+        addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F3) {
+                setPerformanceOverlay(!isPerformanceOverlay());
+                e.consume();
+            }
+        });
     }
 
 
     /**
      * uses same logic from combobox level choosing to generate a new game at the same level
      * uses the initGame method from CardGridPane to reset the grid and update the game state
-     * also sets the numClicked and numMatched back to zero for the next game
+     * also deals the new board into the engine, which sets numMatched back to zero for the next game
      * @throws FileNotFoundException
      */
     public void newGame() throws FileNotFoundException {
         level = menu.valueProperty().get();
-        if (level == null){
-            rows = 8;
-            cols = 8;
+        rows = Level.fromName(level).getRows();
+        cols = Level.fromName(level).getCols();
+
+        try {
+            revealScheduler.cancelAll(); //the cards are reused, so a pending check from the old board mustn't touch them
+            initBoard(rows, cols);
+        } catch (FileNotFoundException ex) {
+            throw new RuntimeException(ex);
         }
-        else if (level.equals("level one")) {
-            rows = 2;
-            cols = 3;
 
-        } else if (level.equals("level two")){
-            rows = 2;
-            cols = 4;
+        dealEngine();
+        turns.setText("turns: " + numMatched);
+
+    }
 
-        } else if (level.equals("level three")){
-            rows = 4;
-            cols = 4;
 
-        } else if (level.equals("level four")){
-            rows = 4;
-            cols = 6;
+    /**
+     * lays out and deals a rows x cols board, picking the card size and render mode for it first.
+     * boards bigger than the default 8x8 get smaller cards so they still fit on screen, and are drawn on the canvas
+     * because thousands of card nodes in the scene graph would make every pulse slow.
+     * the switch to the canvas happens before the deal and the switch back after it, so the big board's cards
+     * never go into the scene as nodes
+     * @param rows
+     * @param cols
+     * @throws FileNotFoundException
+     */
+    private void initBoard(int rows, int cols) throws FileNotFoundException {
+        initBoard(rows, cols, 0, null);
+    }
+
+    /**
+     * same as initBoard(rows, cols), but if pairIds isn't null that layout is used instead of dealing a new one
+     * @param rows
+     * @param cols
+     * @param seed the seed pairIds was dealt with
+     * @param pairIds the layout, or null to deal
+     * @throws FileNotFoundException
+     */
+    private void initBoard(int rows, int cols, long seed, int[] pairIds) throws FileNotFoundException {
+        cgp.setCardSize(cardSizeFor(rows, cols));
+        CardGridPane.RenderMode mode = renderModeFor(rows, cols);
+        //switch first if the old board's cards would be a waste to lay out, a virtual board has no cards to lay out
+        //at all so leaving virtual mode waits until the new (smaller) board is dealt
+        if (mode == CardGridPane.RenderMode.VIRTUAL
+                || (mode == CardGridPane.RenderMode.CANVAS && cgp.getRenderMode() != CardGridPane.RenderMode.VIRTUAL)) {
+            cgp.setRenderMode(mode);
+        }
+        if (pairIds == null) {
+            cgp.initCards(rows, cols);
+        } else {
+            cgp.initCards(rows, cols, seed, pairIds);
+        }
+        cgp.setRenderMode(mode);
+    }
 
-        } else if (level.equals("level five")){
-            rows = 6;
-            cols = 6;
+    /**
+     * card size for a rows x cols board, shrunk from the base size so big boards still fit on screen
+     * @param rows
+     * @param cols
+     * @return side length in pixels
+     */
+    private int cardSizeFor(int rows, int cols) {
+        int fit = BOARD_PIXELS / Math.max(rows, cols);
+        return Math.max(MIN_CARD_SIZE, Math.min(baseCardSize, fit));
+    }
 
-        } else if (level.equals("level six")){
-            rows = 8;
-            cols = 8;
+    /**
+     * render mode for a rows x cols board. boards bigger than the default 8x8 are drawn on the canvas, and boards
+     * whose cards would have to shrink below VirtualBoardView.MIN_CELL_SIZE to fit get the scrolling virtual view
+     * @param rows
+     * @param cols
+     * @return RenderMode
+     */
+    private CardGridPane.RenderMode renderModeFor(int rows, int cols) {
+        if (rows * cols <= Level.SIX.getCardCount()) {
+            return GameSettings.getRenderMode();
         }
+        if (GameSettings.getRenderMode() == CardGridPane.RenderMode.VIRTUAL
+                || cardSizeFor(rows, cols) < VirtualBoardView.MIN_CELL_SIZE) {
+            return CardGridPane.RenderMode.VIRTUAL;
+        }
+        return CardGridPane.RenderMode.CANVAS;
+    }
 
+    /**
+     * reads the saved game, if there is one and it's wanted
+     * @return the snapshot or null
+     */
+    private static GameSnapshot loadSnapshot() {
+        String path = GameSettings.getSnapshotPath();
+        if (path == null || path.isEmpty() || GameSettings.getReplayPath() != null) {
+            return null;
+        }
         try {
-            cgp.initCards(rows, cols);
-        } catch (FileNotFoundException ex) {
-            throw new RuntimeException(ex);
+            return GameSnapshot.load(Path.of(path));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("couldn't resume the saved game, starting a new one: " + e);
+            return null;
         }
+    }
 
-        numClicks = 0;
-        numMatched = 0;
-        turns.setText("turns: " + numMatched);
+    /**
+     * picks a saved game back up: the engine gets the saved state and the cards show it
+     * @param snapshot the saved game, already laid out on the CardGridPane
+     */
+    private void resume(GameSnapshot snapshot) {
+        rows = snapshot.getRows();
+        cols = snapshot.getCols();
+        engine.restore(rows, cols, cgp.getPairIds(), snapshot.getFlipped(), snapshot.getMatched(), snapshot.getTurns());
+        numMatched = engine.getMatchedPairs();
+        gameStartNanos = System.nanoTime() - snapshot.getElapsedMillis() * 1_000_000L;
+        if (cgp.getRenderMode() == CardGridPane.RenderMode.VIRTUAL) {
+            //the view reads the engine as cells come into view, only the lone face up card needs remembering
+            for (int index = 0; index < rows * cols; index++) {
+                if (engine.isFlipped(index)) {
+                    clickedCardOne = cgp.getCard(index / cols, index % cols);
+                }
+            }
+        } else {
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    Card card = cgp.getCard(i, j);
+                    int index = i * cols + j;
+                    if (engine.isMatched(index)) {
+                        card.setMatched(true);
+                        card.setVisible(false);
+                    } else if (engine.isFlipped(index)) {
+                        card.flipCard();
+                        clickedCardOne = card;
+                    }
+                }
+            }
+        }
+        if (moveLog != null) {
+            moveLog.deal(snapshot.getSeed(), rows, cols, cgp.getPairIds());
+        }
+    }
 
+    /**
+     * saves the game being played so the next start can resume it. a finished game (or no game) removes the
+     * old snapshot instead, there's nothing to resume
+     */
+    private void saveSnapshot() {
+        String path = GameSettings.getSnapshotPath();
+        if (path == null || path.isEmpty() || replaying) {
+            return;
+        }
+        try {
+            if (engine.getCardCount() == 0 || engine.isSolved()) {
+                Files.deleteIfExists(Path.of(path));
+            } else {
+                Level saved = (level == null) ? null : Level.fromName(level);
+                GameSnapshot.capture(saved, cgp.getDealSeed(), engine, elapsedMillis()).save(Path.of(path));
+            }
+        } catch (IOException e) {
+            System.err.println("couldn't save the game: " + e);
+        }
     }
 
+    /**
+     * returns the engine holding the rules and board state, the virtual board view reads the cells from it
+     * @return GameEngine
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * time the current game has been played, including time before it was saved and resumed
+     * @return milliseconds
+     */
+    public long elapsedMillis() {
+        return (System.nanoTime() - gameStartNanos) / 1_000_000L;
+    }
+
+    /**
+     * deals the board the CardGridPane is showing into the engine and resets the match count
+     */
+    private void dealEngine() {
+        int[] pairIds = cgp.getPairIds();
+        engine.deal(cgp.getCurrentRows(), cgp.getCurrentCols(), pairIds);
+        numMatched = engine.getMatchedPairs();
+        gameStartNanos = System.nanoTime();
+        if (moveLog != null && !replaying) {
+            moveLog.deal(cgp.getDealSeed(), cgp.getCurrentRows(), cgp.getCurrentCols(), pairIds);
+        }
+    }
+
+    /**
+     * returns the engine index of a card, row * cols + col
+     * @param card
+     * @return index
+     */
+    private int indexOf(Card card){
+        return card.getRow() * cgp.getCurrentCols() + card.getCol();
+    }
 
     /**
      * handles logic when a card is clicked by the user.
-     * prevents clicks during a match check and makes sure that only unmatched cards are clickable.
+     * the engine decides if the card can be flipped, so clicks on face up cards and on matched cards are ignored,
+     * and so are clicks during a match check unless fast play is on.
+     * when a pair is face up its check is scheduled for after the reveal delay.
      * @param clickedCard
      */
     public void handleCardClicked(Card clickedCard){
-        if(numClicks == 0){
+        if (replaying) {
+            return;
+        }
+        long clickedAt = System.nanoTime();
+        GameEvents.Flip event = new GameEvents.Flip();
+        event.begin();
+        int result = flip(clickedCard);
+        if (result == GameEngine.IGNORED) {
+            IGNORED_CLICKS.increment();
+            return;
+        }
+        //the latency is closed off by flipShown on the next pulse, the one that puts the flipped card on screen
+        FLIPS.increment();
+        event.index = indexOf(clickedCard);
+        event.result = result;
+        flipEvent = event;
+        flipClickedAt = clickedAt;
+        if (result == GameEngine.SECOND) {
+            Card one = clickedCardOne;
+            Card two = clickedCardTwo;
+            //the reveal delay counts from when the second card has finished turning over
+            long delay = GameSettings.getRevealDelayMillis() + GameSettings.getFlipMillis();
+            revealScheduler.schedule(delay, () -> checkMatch(one, two));
+        }
+
+    }
+
+    /**
+     * runs after layout on every pulse. if a card was flipped since the last one, this is the frame it shows up in,
+     * so the click to flip latency is recorded here
+     */
+    private void flipShown() {
+        if (flipClickedAt == 0) {
+            return;
+        }
+        lastFlipLatencyNanos = System.nanoTime() - flipClickedAt;
+        FLIP_LATENCY.record(lastFlipLatencyNanos);
+        flipClickedAt = 0;
+        if (flipEvent.shouldCommit()) {
+            flipEvent.commit();
+        }
+        flipEvent = null;
+    }
+
+    /**
+     * returns how long the last flipped card took from the click to the frame it showed up flipped in
+     * @return nanoseconds, 0 if nothing has been flipped yet
+     */
+    public long getLastFlipLatencyNanos() {
+        return lastFlipLatencyNanos;
+    }
+
+    /**
+     * shows or hides the performance overlay under the buttons, F3 toggles it. it only measures while shown
+     * @param show
+     */
+    public void setPerformanceOverlay(boolean show) {
+        if (show == isPerformanceOverlay() || getScene() == null) {
+            return;
+        }
+        this.setBottom(null); //commandPane moves between the bottom and the box it shares with statusPane
+        if (show) {
+            if (overlay == null) {
+                overlay = new PerformanceOverlay(this);
+                statusPane.getChildren().add(overlay);
+                statusPane.setAlignment(Pos.CENTER);
+            }
+            this.setBottom(new VBox(commandPane, statusPane));
+            overlay.start();
+        } else {
+            overlay.stop();
+            this.setBottom(commandPane);
+        }
+    }
+
+    public boolean isPerformanceOverlay() {
+        return overlay != null && overlay.isRunning();
+    }
+
+    /**
+     * keeps flipShown hooked to the pulses of whatever scene this pane is in
+     */
+    private void watchPulses() {
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.removePostLayoutPulseListener(flipPulse);
+            }
+            if (newScene != null) {
+                newScene.addPostLayoutPulseListener(flipPulse);
+            }
+        });
+    }
+
+    /**
+     * flips a card through the engine and shows it, remembering it as the first or second card of the pair
+     * @param clickedCard
+     * @return the GameEngine.flip result
+     */
+    private int flip(Card clickedCard) {
+        int index = indexOf(clickedCard);
+        int result = engine.flip(index);
+        if (moveLog != null && !replaying) {
+            moveLog.flip(index, result);
+        }
+        if (result == GameEngine.IGNORED) {
+            return result;
+        }
+        clickedCard.flipCard();
+        if (result == GameEngine.FIRST) {
             clickedCardOne = clickedCard;
-            clickedCard.flipCard();
-            numClicks += 1;
-        } else if (numClicks == 1) {
+        } else {
             clickedCardTwo = clickedCard;
-            clickedCard.flipCard();
-            numClicks = 2;
-            startTime = System.nanoTime();
-            timer.start();
         }
-
+        return result;
     }
 
     /**
      * compares the two most recently clicked cards to see if they match.
-     *  If they match, they're disabled and marked as matched.
-     *  If not, they're flipped back, according to the animationtimers handle method
-     *  Resets the click counter and updates the turn label.
      * @throws FileNotFoundException
      */
     public void checkMatch() throws FileNotFoundException {
-        if (clickedCardOne.getPath().equals(clickedCardTwo.getPath())) {
-            clickedCardOne.setMatched(true);
-            clickedCardTwo.setMatched(true);
-            clickedCardOne.setVisible(false);
-            clickedCardTwo.setVisible(false);
-            numMatched += 1;
-            matchSound.play();
+        checkMatch(clickedCardOne, clickedCardTwo);
+    }
+
+    /**
+     * resolves a face up pair in the engine to see if they match.
+     *  If they match, they're disabled and marked as matched.
+     *  If not, they're flipped back.
+     *  Updates the turn label.
+     *  in fast play there can be more than one pair waiting, each one is checked on its own.
+     * @param one first card of the pair
+     * @param two second card of the pair
+     */
+    private void checkMatch(Card one, Card two) {
+        GameEvents.Match event = new GameEvents.Match();
+        event.begin();
+        long start = System.nanoTime();
+        boolean matched = engine.resolve(indexOf(one), indexOf(two));
+        if (moveLog != null && !replaying) {
+            moveLog.resolve(indexOf(one), indexOf(two), matched);
+        }
+        if (matched) {
+            one.setMatched(true);
+            two.setMatched(true);
+            one.setVisible(false);
+            two.setVisible(false);
+            audio.play(Sound.MATCH);
         } else {
-            clickedCardOne.setFlipped(false);
-            clickedCardOne.flipCard();
-            clickedCardTwo.setFlipped(false);
-            clickedCardTwo.flipCard();
-            notMatch.play();
+            one.flipCard();
+            two.flipCard();
+            audio.play(Sound.NO_MATCH);
 
         }
-        if (numMatched == (cgp.getCurrentRows() * cgp.getCurrentCols() / 2)){
+        numMatched = engine.getMatchedPairs();
+        if (engine.isSolved() && !replaying){
+            GAMES_WON.increment();
             gameOver();
 
         }
-        numClicks = 0;
         turns.setText("turns: " + numMatched);
+        (matched ? MATCHES : MISMATCHES).increment();
+        RESOLVE_TIME.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.first = indexOf(one);
+            event.second = indexOf(two);
+            event.matched = matched;
+            event.turns = engine.getTurns();
+            event.commit();
+        }
+    }
+
+    /**
+     * replay: deals the logged board, same as picking its level but with the logged layout
+     * @param seed the seed the board was dealt with
+     * @param rows
+     * @param cols
+     * @param pairIds pair id of each card, row by row
+     */
+    public void replayDeal(long seed, int rows, int cols, int[] pairIds) {
+        this.rows = rows;
+        this.cols = cols;
+        revealScheduler.cancelAll();
+        try {
+            initBoard(rows, cols, seed, pairIds);
+        } catch (FileNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+        dealEngine();
+        turns.setText("turns: " + numMatched);
+    }
+
+    /**
+     * replay: flips the card at index like a click would, the logged resolve takes the place of the reveal delay
+     * @param index card index, row * cols + col
+     */
+    public void replayFlip(int index) {
+        flip(cgp.getCard(index / cgp.getCurrentCols(), index % cgp.getCurrentCols()));
+    }
+
+    /**
+     * replay: resolves the pair at first and second
+     * @param first card index
+     * @param second card index
+     */
+    public void replayResolve(int first, int second) {
+        if (!engine.isFlipped(first) || !engine.isFlipped(second)) {
+            return; //logged against a resumed board this replay didn't start from
+        }
+        int c = cgp.getCurrentCols();
+        checkMatch(cgp.getCard(first / c, first % c), cgp.getCard(second / c, second % c));
+    }
+
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    /**
+     * while replaying the mouse is ignored and nothing is logged
+     * @param replaying
+     */
+    public void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+    }
+
+    /**
+     * called when the app is closing, saves the game for next time and writes out and closes the move log
+     */
+    public void shutdown() {
+        revealScheduler.cancelAll();
+        setPerformanceOverlay(false);
+        saveSnapshot();
+        audio.close();
+        try {
+            leaderboard.close();
+        } catch (IOException e) {
+            System.err.println("couldn't save the leaderboard: " + e);
+        }
+        if (moveLog != null) {
+            try {
+                moveLog.close();
+            } catch (IOException e) {
+                System.err.println("couldn't finish the move log: " + e);
+            }
+            moveLog = null;
+        }
+    }
+
+    /**
+     * starts loading the short sounds in the background, called once the first frame is up
+     * so it doesn't hold up startup
+     */
+    public void preloadSounds() {
+        audio.preload();
+    }
+
+    /**
+     * records the game that was just won on the leaderboard
+     * @return text for the popup: this game's result and the best ones for its level, empty if the board isn't a level
+     */
+    private String recordResult() {
+        Level played = Level.fromSize(engine.getRows(), engine.getCols());
+        if (played == null) {
+            return "";
+        }
+        int turnsTaken = engine.getTurns();
+        long millis = elapsedMillis();
+        boolean onBoard = leaderboard.record(played, turnsTaken, millis, cgp.getDealSeed());
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%d turns in %.1fs%s%n%nbest on %s:", turnsTaken, millis / 1000.0,
+                onBoard ? ", it made the leaderboard" : "", played.getName()));
+        int rank = 1;
+        for (Leaderboard.Result result : leaderboard.top(played, 5)) {
+            text.append(String.format("%n%d. %s", rank++, result));
+        }
+        return text.toString();
     }
 
     /**
      * uses the alert javafx class to create a popup message that shows when all of the cards have been matched
      * provides options to start a new game at the same level or exit the game
      * also plays victory music
+     * the result is recorded on the leaderboard and the popup shows the level's best games
      */
     public void gameOver() {
+        String message = "all cards matched! " + recordResult();
         Platform.runLater(() -> {
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "all cards matched! ");
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, message);
             alert.setTitle("winner");
             ButtonType newGameBT = new ButtonType("new game");
             ButtonType exitGameBT = new ButtonType("exit");
             alert.getButtonTypes().setAll(newGameBT, exitGameBT);
-            victory.play();
+            if (moveLog != null) {
+                moveLog.flush(); //the game is over, get it on disk
+            }
+            //get the faces for the next board decoding while the popup is up
+            cgp.prewarm(cgp.getCurrentRows(), cgp.getCurrentCols());
+            audio.play(Sound.VICTORY); //streamed, and let go of once it ends
             alert.showAndWait().ifPresent(response -> {
                 if (response == newGameBT) {
                     try {
@@ -369,7 +712,7 @@ public class GamePane extends BorderPane {
                     stageBig.close();
                 }
             });
-            victory.stop();
+            audio.stop(Sound.VICTORY);
         });
     }
 
@@ -0,0 +1,305 @@
+/**
+ *  GameServer hosts lots of Concentration games at once over local TCP, one GameEngine per connection.
+ *  Every connection gets its own thread that just blocks on the socket. On a JDK with virtual threads
+ *  (21 and up) those are virtual threads, so tens of thousands of sessions cost a few KB each instead of a
+ *  thread stack each. On JDK 17 it falls back to a cached pool of platform threads with small stacks.
+ *
+ *  the protocol is one line per command and one line per reply:
+ *    NEW rows cols [seed]   deals a new board             -> OK rows cols
+ *    FLIP index             turns card index face up      -> FIRST pairId | MATCH pairId | MISS pairId
+ *                                                            | WON pairId turns | IGNORED
+ *    QUIT                   ends the session              -> BYE
+ *  anything else gets ERR and a reason. there's no reveal delay, the second card of a pair is checked as soon
+ *  as it's flipped, the same way GamePane.checkMatch would once the delay was over.
+ *
+ *  won games on a Level sized board go on the Leaderboard.
+ *
+ *  usage: java GameServer [port] [leaderboard file]
+ *
+ **/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GameServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7878;
+    private static final int MAX_CARDS = 100 * 100; //biggest board a client can ask for, same as Level.TEN
+    private static final int BACKLOG = 4096; //connections the OS queues while the accept loop catches up
+    private static final int IO_BUFFER = 256; //chars buffered each way per session, the replies are a few bytes
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024; //stack for the JDK 17 fallback threads
+
+    private static final LongAdder SESSIONS = MetricsRegistry.getShared().counter("server.sessions"); //connections accepted
+    private static final LongAdder MOVES = MetricsRegistry.getShared().counter("server.moves"); //FLIP commands handled
+    private static final LongAdder GAMES_WON = MetricsRegistry.getShared().counter("server.gamesWon");
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions; //one task per connection
+    private final SplittableRandom seeds = new SplittableRandom(); //seeds for boards dealt without one, only used by the accept thread
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet(); //sessions connected right now, closed by close()
+    private final Thread acceptThread;
+    private final Leaderboard leaderboard; //where won games are recorded, null for none
+
+    /**
+     * opens the server socket on the loopback address and starts accepting connections
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port can't be bound
+     */
+    public GameServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    /**
+     * opens the server socket on the loopback address and starts accepting connections
+     * @param port port to listen on, 0 for any free port
+     * @param leaderboard where won games of a Level's size are recorded, null for none
+     * @throws IOException if the port can't be bound
+     */
+    public GameServer(int port, Leaderboard leaderboard) throws IOException {
+        this.leaderboard = leaderboard;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        sessions = newThreadPerTaskExecutor("game-session-");
+        acceptThread = new Thread(this::acceptLoop, "game-server-accept");
+        acceptThread.start();
+    }
+
+    /**
+     * returns an executor that runs every task on a thread of its own: virtual threads when the JDK has them,
+     * otherwise daemon platform threads with a small stack that are reused once a task ends.
+     * virtual threads are looked up by reflection so this still compiles for JDK 17
+     * @param prefix name prefix for the platform threads
+     * @return ExecutorService
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task, prefix + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    /**
+     * returns true if newThreadPerTaskExecutor hands out virtual threads on this JDK
+     * @return boolean
+     */
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getOpenSessions() {
+        return open.size();
+    }
+
+    /**
+     * stops accepting connections, hangs up on every open session and waits for their threads to end
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : open) {
+            closeQuietly(socket);
+        }
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("accept failed: " + e);
+                }
+                continue;
+            }
+            SESSIONS.increment();
+            long seed = seeds.nextLong();
+            try {
+                sessions.execute(() -> serve(socket, seed));
+            } catch (RuntimeException e) {
+                closeQuietly(socket); //the executor was shut down
+            }
+        }
+    }
+
+    /**
+     * runs one session until the client quits or hangs up
+     */
+    private void serve(Socket socket, long seed) {
+        open.add(socket);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), IO_BUFFER);
+            Writer out = new BufferedWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), IO_BUFFER);
+            Session session = new Session(seed);
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean more = session.handle(line, out);
+                out.write('\n');
+                out.flush();
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            //client went away
+        } catch (IOException e) {
+            System.err.println("session ended: " + e);
+        } finally {
+            open.remove(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //nothing to do
+        }
+    }
+
+    /**
+     * the game state of one connection. the engine is reused for every NEW, so a session holds one board's
+     * pair ids and bitsets and nothing else
+     */
+    final class Session {
+        private final GameEngine engine = new GameEngine();
+        private final SplittableRandom random; //where the seeds of boards dealt without one come from
+        private long seed; //seed the current board was dealt with
+        private long dealtAt; //System.nanoTime() the current board was dealt
+
+        Session(long seed) {
+            random = new SplittableRandom(seed);
+        }
+
+        /**
+         * runs one command and writes its reply, without the newline
+         * @return false if the session should end
+         */
+        boolean handle(String line, Writer out) throws IOException {
+            String[] words = line.trim().split(" "); //one char split, no regex per command
+            try {
+                switch (words[0].toUpperCase()) {
+                    case "FLIP":
+                        flip(Integer.parseInt(words[1]), out);
+                        return true;
+                    case "NEW":
+                        deal(words, out);
+                        return true;
+                    case "QUIT":
+                        out.write("BYE");
+                        return false;
+                    default:
+                        out.write("ERR unknown command " + words[0]);
+                        return true;
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                out.write("ERR bad arguments: " + line);
+                return true;
+            }
+        }
+
+        private void deal(String[] words, Writer out) throws IOException {
+            int rows = Integer.parseInt(words[1]);
+            int cols = Integer.parseInt(words[2]);
+            if (rows <= 0 || cols <= 0 || (long) rows * cols > MAX_CARDS || (rows * cols) % 2 != 0) {
+                out.write("ERR board must have an even number of cards, at most " + MAX_CARDS);
+                return;
+            }
+            seed = words.length > 3 ? Long.parseLong(words[3]) : random.nextLong();
+            engine.deal(rows, cols, Deck.deal(rows * cols, new SplittableRandom(seed)));
+            dealtAt = System.nanoTime();
+            out.write("OK " + rows + " " + cols);
+        }
+
+        private void flip(int index, Writer out) throws IOException {
+            int result = engine.flip(index);
+            if (result == GameEngine.IGNORED) {
+                out.write("IGNORED");
+                return;
+            }
+            MOVES.increment();
+            String pairId = Integer.toString(engine.getPairId(index));
+            if (result == GameEngine.FIRST) {
+                out.write("FIRST ");
+                out.write(pairId);
+            } else if (!engine.resolve(engine.getPairFirst(), engine.getPairSecond())) {
+                out.write("MISS ");
+                out.write(pairId);
+            } else if (engine.isSolved()) {
+                GAMES_WON.increment();
+                Level level = Level.fromSize(engine.getRows(), engine.getCols());
+                if (leaderboard != null && level != null) {
+                    leaderboard.record(level, engine.getTurns(), (System.nanoTime() - dealtAt) / 1_000_000L, seed);
+                }
+                out.write("WON ");
+                out.write(pairId);
+                out.write(" " + engine.getTurns());
+            } else {
+                out.write("MATCH ");
+                out.write(pairId);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Leaderboard leaderboard = new Leaderboard(args.length > 1 ? Path.of(args[1]) : null);
+        GameServer server = new GameServer(port, leaderboard);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                leaderboard.close();
+            } catch (IOException e) {
+                System.err.println("shutdown: " + e);
+            }
+        }));
+        MetricsRegistry.registerMBean();
+        System.out.printf("game server on %s:%d, %s threads%n", InetAddress.getLoopbackAddress().getHostAddress(),
+                server.getPort(), hasVirtualThreads() ? "virtual" : "platform");
+    }
+}
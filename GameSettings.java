@@ -0,0 +1,213 @@
+/**
+ *  GameSettings holds the optional modes the game can run in. Each one starts out from a system property
+ *  (for example -Dmemorygame.atlas=true) so they can be switched on from the command line,
+ *  and can also be changed in code before the GamePane is created.
+ *
+ **/
+
+public class GameSettings {
+    private static boolean atlasMode = Boolean.getBoolean("memorygame.atlas"); //cards show their faces out of one packed texture
+    private static boolean atlasCompare = Boolean.getBoolean("memorygame.atlas.compare"); //print atlas vs per-file load times at startup
+    private static CardGridPane.RenderMode renderMode = parseRenderMode(System.getProperty("memorygame.renderer")); //node per card, the whole board on one canvas, or a scrolling view of part of it
+    private static long revealDelayMillis = Long.getLong("memorygame.revealDelay", 800); //how long a face up pair is shown before it's checked
+    private static boolean fastPlay = Boolean.getBoolean("memorygame.fastPlay"); //keep flipping while earlier pairs are still being checked
+    private static boolean largeBoards = Boolean.getBoolean("memorygame.largeBoards"); //offer the 16x16 to 100x100 levels with generated faces
+    private static String moveLogPath = System.getProperty("memorygame.moveLog"); //file every deal, flip and resolve is appended to, null for no log
+    private static String replayPath = System.getProperty("memorygame.replay"); //move log to play back at startup instead of playing
+    private static boolean silentAudio = "silent".equalsIgnoreCase(System.getProperty("memorygame.audio")); //play no sounds, for headless runs and machines without audio
+    private static boolean startupTimings = Boolean.getBoolean("memorygame.startupTimings"); //print how long each startup phase took
+    private static String snapshotPath = System.getProperty("memorygame.snapshot",
+            System.getProperty("user.home") + "/.memorygame/snapshot.bin"); //where the game in progress is saved on exit, empty to turn it off
+    private static String leaderboardPath = System.getProperty("memorygame.leaderboard",
+            System.getProperty("user.home") + "/.memorygame/leaderboard.bin"); //where the best results are saved, empty to keep them in memory only
+    private static String assetBundlePath = System.getProperty("memorygame.assetBundle",
+            System.getProperty("user.home") + "/.memorygame/assets.bin"); //the faces already decoded, built on first run, empty to decode the jpgs every time
+    private static int loaderThreads = Integer.getInteger("memorygame.loaderThreads",
+            Runtime.getRuntime().availableProcessors()); //most faces decoded at once when a board is loaded
+    private static long flipMillis = Long.getLong("memorygame.flipMillis", -1); //length of the flip animation, 0 for none, -1 to go by the reveal delay
+    private static boolean fpsCheck = Boolean.getBoolean("memorygame.fpsCheck"); //measure the frame rate and print it every few seconds
+    private static boolean performanceOverlay = Boolean.getBoolean("memorygame.overlay"); //show the performance overlay from the start, F3 toggles it either way
+    private static double replaySpeed = parseSpeed(System.getProperty("memorygame.replaySpeed", "1")); //1 is real time, 10 is ten times faster, 0 is as fast as possible
+
+    private GameSettings() {
+    }
+
+    /**
+     * reads a renderer name, "canvas" or "virtual", anything else is a node per card
+     */
+    private static CardGridPane.RenderMode parseRenderMode(String renderer) {
+        if ("canvas".equalsIgnoreCase(renderer)) {
+            return CardGridPane.RenderMode.CANVAS;
+        }
+        return "virtual".equalsIgnoreCase(renderer) ? CardGridPane.RenderMode.VIRTUAL : CardGridPane.RenderMode.NODES;
+    }
+
+    /**
+     * reads a replay speed, "max" means as fast as possible. anything that isn't a number 0 or over is
+     * warned about and replays in real time
+     */
+    private static double parseSpeed(String speed) {
+        if ("max".equalsIgnoreCase(speed)) {
+            return 0;
+        }
+        try {
+            double parsed = Double.parseDouble(speed);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            //warned about below
+        }
+        System.err.println("memorygame.replaySpeed should be a number 0 or over or \"max\", not \"" + speed + "\", replaying at 1");
+        return 1;
+    }
+
+    public static boolean isAtlasMode() {
+        return atlasMode;
+    }
+
+    public static void setAtlasMode(boolean atlasMode) {
+        GameSettings.atlasMode = atlasMode;
+    }
+
+    public static boolean isAtlasCompare() {
+        return atlasCompare;
+    }
+
+    public static void setAtlasCompare(boolean atlasCompare) {
+        GameSettings.atlasCompare = atlasCompare;
+    }
+
+    public static CardGridPane.RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    public static void setRenderMode(CardGridPane.RenderMode renderMode) {
+        GameSettings.renderMode = renderMode;
+    }
+
+    public static long getRevealDelayMillis() {
+        return revealDelayMillis;
+    }
+
+    public static void setRevealDelayMillis(long revealDelayMillis) {
+        GameSettings.revealDelayMillis = revealDelayMillis;
+    }
+
+    /**
+     * how long a card takes to flip over. unless it was set, it's a quarter of the reveal delay up to 240ms,
+     * so a pair spends most of the reveal delay face up instead of turning
+     * @return milliseconds, 0 for no animation
+     */
+    public static long getFlipMillis() {
+        return flipMillis >= 0 ? flipMillis : Math.min(240, revealDelayMillis / 4);
+    }
+
+    public static void setFlipMillis(long flipMillis) {
+        GameSettings.flipMillis = flipMillis;
+    }
+
+    public static boolean isFpsCheck() {
+        return fpsCheck;
+    }
+
+    public static void setFpsCheck(boolean fpsCheck) {
+        GameSettings.fpsCheck = fpsCheck;
+    }
+
+    public static boolean isPerformanceOverlay() {
+        return performanceOverlay;
+    }
+
+    public static void setPerformanceOverlay(boolean performanceOverlay) {
+        GameSettings.performanceOverlay = performanceOverlay;
+    }
+
+    public static boolean isFastPlay() {
+        return fastPlay;
+    }
+
+    public static void setFastPlay(boolean fastPlay) {
+        GameSettings.fastPlay = fastPlay;
+    }
+
+    public static boolean isLargeBoards() {
+        return largeBoards;
+    }
+
+    public static void setLargeBoards(boolean largeBoards) {
+        GameSettings.largeBoards = largeBoards;
+    }
+
+    public static String getMoveLogPath() {
+        return moveLogPath;
+    }
+
+    public static void setMoveLogPath(String moveLogPath) {
+        GameSettings.moveLogPath = moveLogPath;
+    }
+
+    public static String getReplayPath() {
+        return replayPath;
+    }
+
+    public static void setReplayPath(String replayPath) {
+        GameSettings.replayPath = replayPath;
+    }
+
+    public static double getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    public static void setReplaySpeed(double replaySpeed) {
+        GameSettings.replaySpeed = replaySpeed;
+    }
+
+    public static String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public static void setSnapshotPath(String snapshotPath) {
+        GameSettings.snapshotPath = snapshotPath;
+    }
+
+    public static String getLeaderboardPath() {
+        return leaderboardPath;
+    }
+
+    public static void setLeaderboardPath(String leaderboardPath) {
+        GameSettings.leaderboardPath = leaderboardPath;
+    }
+
+    public static String getAssetBundlePath() {
+        return assetBundlePath;
+    }
+
+    public static void setAssetBundlePath(String assetBundlePath) {
+        GameSettings.assetBundlePath = assetBundlePath;
+    }
+
+    public static int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    public static void setLoaderThreads(int loaderThreads) {
+        GameSettings.loaderThreads = loaderThreads;
+    }
+
+    public static boolean isStartupTimings() {
+        return startupTimings;
+    }
+
+    public static void setStartupTimings(boolean startupTimings) {
+        GameSettings.startupTimings = startupTimings;
+    }
+
+    public static boolean isSilentAudio() {
+        return silentAudio;
+    }
+
+    public static void setSilentAudio(boolean silentAudio) {
+        GameSettings.silentAudio = silentAudio;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ *  GameSnapshot is everything needed to pick a game back up: the level, the layout, which cards are face up
+ *  and matched, the turn count and how long it has been played. GamePane saves one when the app closes and
+ *  resumes from it at startup.
+ *  It's stored as one small binary file, written to a temp file and moved over the old one so a crash mid
+ *  save never leaves a half written snapshot. A CRC at the end catches anything else that got damaged.
+ *
+ *  file layout, big endian: MAGIC (int), VERSION (int), level ordinal (int, -1 for none), rows (int), cols (int),
+ *  seed (long), turns (int), elapsed millis (long), rows*cols pair ids (int each), face up bitset (just the first
+ *  card of a pair being picked) and matched bitset ((rows*cols+63)/64 longs each), CRC32 of everything before
+ *  it (int)
+ *
+ **/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class GameSnapshot {
+    public static final int MAGIC = 0x4D475353; //"MGSS"
+    public static final int VERSION = 1;
+
+    private final Level level; //level picked in the combobox, null if none was picked yet
+    private final int rows;
+    private final int cols;
+    private final long seed; //seed the layout was dealt with
+    private final int[] pairIds; //pair id of each card, row by row
+    private final long[] flipped; //bitset of face up cards
+    private final long[] matched; //bitset of matched cards
+    private final int turns;
+    private final long elapsedMillis; //time played so far
+
+    /**
+     * creates a snapshot from its parts, the arrays aren't copied
+     */
+    public GameSnapshot(Level level, int rows, int cols, long seed, int[] pairIds, long[] flipped, long[] matched,
+                        int turns, long elapsedMillis) {
+        this.level = level;
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        this.pairIds = pairIds;
+        this.flipped = flipped;
+        this.matched = matched;
+        this.turns = turns;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * takes a snapshot of the game an engine is playing. the only face up card saved is the first card of the pair
+     * being picked, pairs still waiting for their check would be turned back down when the game is restored
+     * @param level the level, or null
+     * @param seed the seed the board was dealt with
+     * @param engine the engine holding the board
+     * @param elapsedMillis time played so far
+     * @return GameSnapshot
+     */
+    public static GameSnapshot capture(Level level, long seed, GameEngine engine, long elapsedMillis) {
+        int[] pairIds = new int[engine.getCardCount()];
+        for (int i = 0; i < pairIds.length; i++) {
+            pairIds[i] = engine.getPairId(i);
+        }
+        long[] flipped = new long[(pairIds.length + 63) >>> 6];
+        int first = engine.getFirstIndex();
+        if (first >= 0) {
+            flipped[first >>> 6] |= 1L << first;
+        }
+        return new GameSnapshot(level, engine.getRows(), engine.getCols(), seed, pairIds,
+                flipped, engine.getMatchedBits(), engine.getTurns(), elapsedMillis);
+    }
+
+    /**
+     * writes the snapshot to path, replacing whatever was there
+     * @param path the snapshot file
+     * @throws IOException
+     */
+    public void save(Path path) throws IOException {
+        int words = flipped.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 5 + 8 + 4 + 8 + 4 * pairIds.length + 8 * 2 * words + 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(level == null ? -1 : level.ordinal())
+                .putInt(rows).putInt(cols).putLong(seed).putInt(turns).putLong(elapsedMillis);
+        buffer.asIntBuffer().put(pairIds);
+        buffer.position(buffer.position() + 4 * pairIds.length);
+        buffer.asLongBuffer().put(flipped).put(matched);
+        buffer.position(buffer.position() + 8 * 2 * words);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * reads a snapshot back
+     * @param path the snapshot file
+     * @return the snapshot, or null if there's no file
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    public static GameSnapshot load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 44 || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a game snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " is snapshot version " + version + ", expected " + VERSION);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 4);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException(path + " is damaged, its checksum doesn't match");
+        }
+        int levelOrdinal = buffer.getInt();
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        long seed = buffer.getLong();
+        int turns = buffer.getInt();
+        long elapsedMillis = buffer.getLong();
+        int cards = rows * cols;
+        int words = (cards + 63) >>> 6;
+        if (rows <= 0 || cols <= 0 || levelOrdinal >= Level.values().length
+                || buffer.remaining() != 4 * cards + 8 * 2 * words + 4) {
+            throw new IOException(path + " has a bad board size");
+        }
+        int[] pairIds = new int[cards];
+        buffer.asIntBuffer().get(pairIds);
+        buffer.position(buffer.position() + 4 * cards);
+        long[] flipped = new long[words];
+        long[] matched = new long[words];
+        buffer.asLongBuffer().get(flipped).get(matched);
+        Level level = levelOrdinal < 0 ? null : Level.values()[levelOrdinal];
+        return new GameSnapshot(level, rows, cols, seed, pairIds, flipped, matched, turns, elapsedMillis);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int[] getPairIds() {
+        return pairIds;
+    }
+
+    public long[] getFlipped() {
+        return flipped;
+    }
+
+    public long[] getMatched() {
+        return matched;
+    }
+
+    public boolean isFlipped(int index) {
+        return (flipped[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isMatched(int index) {
+        return (matched[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ *  ImageCache holds decoded card images keyed by their path so each face is only decoded once.
+ *  Both cards of a pair get the same Image instance back, and re-dealing a board reuses the images
+ *  that are already in memory instead of decoding every jpg again.
+ *  The cache is bounded: it keeps the most recently used entries (LRU) and the values are held through
+ *  soft references so the garbage collector can still take them back if memory gets tight.
+ *  Paths that start with FaceGenerator.PREFIX are drawn by the FaceGenerator instead of loaded from a file.
+ *  Decoding happens outside the lock so several threads can fill the cache at once.
+ *  Images can be asked for at a display size: they're decoded (smoothly) at that size rounded up to a size bucket,
+ *  so small cards don't hold full size bitmaps and a card size change only decodes again when it moves to another
+ *  bucket. An image is never decoded bigger than the file is, sizes past that share the full size decode.
+ *  Shipped images that are in the AssetBundle aren't decoded at all, they come straight out of its memory mapped
+ *  file at the size the file is, and smaller cards just scale them down.
+ *  Every lookup is counted in the MetricsRegistry and shows up as an ImageLoad flight recorder event.
+ *
+ **/
+
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ImageCache {
+    public static final int DEFAULT_MAX_ENTRIES = 128; //enough for every face in projimages plus the back image
+    public static final int FULL_SIZE = 0; //size to ask for to get the image at the size the file is
+    private static final LongAdder HITS = MetricsRegistry.getShared().counter("image.cacheHits"); //across every cache
+    private static final LongAdder MISSES = MetricsRegistry.getShared().counter("image.cacheMisses");
+    private static final LatencyHistogram DECODE_TIME = MetricsRegistry.getShared().histogram("image.decode");
+    private static final int[] SIZE_BUCKETS = {16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512, 768, 1024}; //each about 1.5x the last
+    private static final ImageCache shared = new ImageCache(DEFAULT_MAX_ENTRIES); //the cache Card and CardGridPane use
+
+    private int maxEntries; //the most images the cache will hold before it starts evicting
+    private final int baseEntries; //the bound the cache was made with, fitBoard never goes under it
+    private final LinkedHashMap<String, SoftReference<Image>> images; //access ordered so the eldest entry is the least recently used
+    private long hits; //number of lookups that found a decoded image
+    private long misses; //number of lookups that had to decode the image
+    private long evictions; //number of images dropped, either by the LRU bound or because the GC cleared them
+    private final ConcurrentHashMap<String, Integer> naturalSizes = new ConcurrentHashMap<>(); //longer side of each file, read from its header, -1 if unknown
+
+    /**
+     * creates a cache that holds at most maxEntries images
+     * @param maxEntries the bound on the number of cached images
+     */
+    public ImageCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.baseEntries = maxEntries;
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Image>> eldest) {
+                if (size() > ImageCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * returns the cache shared by the whole game
+     * @return the shared ImageCache
+     */
+    public static ImageCache getShared() {
+        return shared;
+    }
+
+    /**
+     * returns the decoded image for path at the size the file is, decoding it only if it isn't cached already
+     * @param path the image path, same format that new Image(path) takes
+     * @return the decoded Image
+     */
+    public Image get(String path) {
+        return get(path, FULL_SIZE);
+    }
+
+    /**
+     * returns the image for path decoded to fit a size x size square, decoding it only if that size bucket
+     * isn't cached already
+     * @param path the image path
+     * @param size the size it will be shown at in pixels, FULL_SIZE for the size the file is
+     * @return the decoded Image
+     */
+    public Image get(String path, int size) {
+        GameEvents.ImageLoad event = new GameEvents.ImageLoad();
+        event.begin();
+        int decodeSize = decodeSize(path, size, true);
+        String key = key(path, decodeSize);
+        synchronized (this) {
+            SoftReference<Image> ref = images.get(key);
+            Image image = (ref == null) ? null : ref.get();
+            if (image != null) {
+                hits++;
+                HITS.increment();
+                commit(event, path, decodeSize, image, true);
+                return image;
+            }
+            if (ref != null) {
+                //the GC cleared this one, count it as an eviction before decoding it again
+                images.remove(key);
+                evictions++;
+            }
+            misses++;
+        }
+        long start = System.nanoTime();
+        Image image = load(path, decodeSize);
+        DECODE_TIME.record(System.nanoTime() - start);
+        MISSES.increment();
+        commit(event, path, decodeSize, image, false);
+        synchronized (this) {
+            //another thread may have loaded the same image meanwhile, keep the first one so pairs still share it
+            SoftReference<Image> ref = images.get(key);
+            Image existing = (ref == null) ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            images.put(key, new SoftReference<>(image));
+            return image;
+        }
+    }
+
+    /**
+     * fills in and commits the flight recorder event for a lookup, if a recording wants it
+     */
+    private static void commit(GameEvents.ImageLoad event, String path, int decodeSize, Image image, boolean hit) {
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.size = decodeSize;
+            event.bytes = (long) image.getWidth() * (long) image.getHeight() * 4;
+            event.cacheHit = hit;
+            event.commit();
+        }
+    }
+
+    /**
+     * decodes the image for path at decodeSize, or draws it if it's a generated face
+     * @param path the image path
+     * @param decodeSize bucket size to decode at, FULL_SIZE for the file's own size
+     * @return the Image
+     */
+    private static Image load(String path, int decodeSize) {
+        if (FaceGenerator.isGenerated(path)) {
+            int size = (decodeSize == FULL_SIZE) ? FaceGenerator.DEFAULT_SIZE : decodeSize;
+            return FaceGenerator.generate(FaceGenerator.pairIdOf(path), size);
+        }
+        AssetBundle bundle = AssetBundle.getShared();
+        Image bundled = (bundle == null) ? null : bundle.image(path);
+        if (bundled != null) {
+            return bundled;
+        }
+        if (decodeSize == FULL_SIZE) {
+            return new Image(path);
+        }
+        return new Image(path, decodeSize, decodeSize, true, true);
+    }
+
+    /**
+     * rounds a display size up to its bucket, so sizes close to each other share one decode
+     * @param size display size in pixels
+     * @return the bucket size, or FULL_SIZE for FULL_SIZE or anything past the biggest bucket
+     */
+    public static int sizeBucket(int size) {
+        if (size <= 0) {
+            return FULL_SIZE;
+        }
+        for (int bucket : SIZE_BUCKETS) {
+            if (size <= bucket) {
+                return bucket;
+            }
+        }
+        return FULL_SIZE;
+    }
+
+    /**
+     * the size path is actually decoded at when asked for at size: its bucket, unless that's as big as the file
+     * or bigger, then the full size decode is used instead of scaling the image up
+     * @param readHeader whether the file's header may be read to find its size, otherwise an unknown size
+     *                   is taken to be bigger than the bucket
+     */
+    private int decodeSize(String path, int size, boolean readHeader) {
+        int bucket = sizeBucket(size);
+        if (bucket == FULL_SIZE || FaceGenerator.isGenerated(path)) {
+            return bucket;
+        }
+        AssetBundle bundle = AssetBundle.getShared();
+        if (bundle != null && bundle.contains(path)) {
+            return FULL_SIZE; //the bundled image costs nothing to load, one entry serves every size
+        }
+        Integer natural = readHeader ? naturalSizes.computeIfAbsent(path, ImageCache::readNaturalSize)
+                : naturalSizes.get(path);
+        return (natural != null && natural > 0 && bucket >= natural) ? FULL_SIZE : bucket;
+    }
+
+    private static String key(String path, int decodeSize) {
+        return (decodeSize == FULL_SIZE) ? path : path + "@" + decodeSize;
+    }
+
+    /**
+     * reads the longer side of an image from its file header without decoding it, knows jpg, png and gif
+     * @return the size in pixels, or -1 if it can't tell
+     */
+    private static int readNaturalSize(String path) {
+        try (InputStream in = open(path)) {
+            if (in == null) {
+                return -1;
+            }
+            byte[] head = in.readNBytes(64 * 1024);
+            if (head.length >= 24 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+                return Math.max(readInt(head, 16), readInt(head, 20));
+            }
+            if (head.length >= 10 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F') {
+                return Math.max((head[6] & 0xFF) | (head[7] & 0xFF) << 8, (head[8] & 0xFF) | (head[9] & 0xFF) << 8);
+            }
+            if (head.length >= 4 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8) {
+                int i = 2;
+                while (i + 9 < head.length && (head[i] & 0xFF) == 0xFF) {
+                    int marker = head[i + 1] & 0xFF;
+                    int length = (head[i + 2] & 0xFF) << 8 | (head[i + 3] & 0xFF);
+                    boolean frame = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+                    if (frame) {
+                        int height = (head[i + 5] & 0xFF) << 8 | (head[i + 6] & 0xFF);
+                        int width = (head[i + 7] & 0xFF) << 8 | (head[i + 8] & 0xFF);
+                        return Math.max(width, height);
+                    }
+                    i += 2 + length;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            //fall through, the image just gets decoded at its bucket size
+        }
+        return -1;
+    }
+
+    /**
+     * opens an image path the way new Image(path) finds it: a url, or a resource on the classpath
+     * @return the stream, or null if there's no such resource
+     */
+    static InputStream open(String path) throws IOException {
+        URL url = locate(path);
+        return (url == null) ? null : url.openStream();
+    }
+
+    /**
+     * finds the url an image path is loaded from
+     * @return the url, or null if there's no such resource
+     */
+    static URL locate(String path) throws IOException {
+        if (path.contains(":")) {
+            return new URL(path);
+        }
+        String resource = path.startsWith("/") ? path.substring(1) : path;
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = ImageCache.class.getClassLoader();
+        }
+        return loader.getResource(resource);
+    }
+
+    private static int readInt(byte[] b, int at) {
+        return (b[at] & 0xFF) << 24 | (b[at + 1] & 0xFF) << 16 | (b[at + 2] & 0xFF) << 8 | (b[at + 3] & 0xFF);
+    }
+
+    /**
+     * sets the bound so the images of the board being loaded fit, used when a big board needs more faces than
+     * the cache holds. it's set again for every board, so after a big board the bound goes back down and the
+     * least recently used images past it are dropped. never goes under the bound the cache was made with
+     * @param entries the number of images the board needs
+     */
+    public synchronized void fitBoard(int entries) {
+        maxEntries = Math.max(baseEntries, entries);
+        Iterator<SoftReference<Image>> eldest = images.values().iterator();
+        while (images.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * returns the image for path only if it's already decoded, never decodes and doesn't touch the counters
+     * @param path the image path
+     * @return the cached Image or null
+     */
+    public Image peek(String path) {
+        return peek(path, FULL_SIZE);
+    }
+
+    /**
+     * returns the image for path at size only if it's already decoded. never decodes or reads the file,
+     * and doesn't touch the counters
+     * @param path the image path
+     * @param size the display size, FULL_SIZE for the size the file is
+     * @return the cached Image or null
+     */
+    public Image peek(String path, int size) {
+        String key = key(path, decodeSize(path, size, false));
+        synchronized (this) {
+            SoftReference<Image> ref = images.get(key);
+            return (ref == null) ? null : ref.get();
+        }
+    }
+
+    /**
+     * drops every cached image, the counters are kept
+     */
+    public synchronized void clear() {
+        images.clear();
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * resets the hit/miss/eviction counters back to zero
+     */
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImageCache[size=" + images.size() + "/" + maxEntries + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ *  LatencyHistogram counts durations in nanoseconds into log scale buckets: every power of two is split into
+ *  eight, so a percentile read back is at most 12.5% over the real value. Recording is a few adds with no
+ *  locking or allocation, so it can sit on the FX thread's hot paths, and any thread can read it.
+ *
+ **/
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3; //each power of two is split into 1 << SUB_BITS buckets
+    private static final int BUCKETS = (64 - SUB_BITS + 1) << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); //counts[bucketOf(nanos)]
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * adds one duration
+     * @param nanos the duration in nanoseconds, negative is taken as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        totalNanos.add(value);
+        long max;
+        while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+            //someone else raised the max, try again against theirs
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * average of everything recorded, in milliseconds
+     * @return mean ms
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * the duration that percent of the recorded durations are at or under, as the top of its bucket
+     * @param percent 0 to 100
+     * @return the percentile in nanoseconds
+     */
+    public long getPercentileNanos(double percent) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketTop(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public double getPercentileMillis(double percent) {
+        return getPercentileNanos(percent) / 1e6;
+    }
+
+    /**
+     * clears everything recorded so far
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * returns a copy of the numbers that can be handed out, used by the JMX view
+     * @return Summary
+     */
+    public Summary summary() {
+        return new Summary(getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getMaxMillis());
+    }
+
+    /**
+     * values below 1 << SUB_BITS get a bucket each, above that the bucket is the power of two plus the next
+     * SUB_BITS bits under the top one
+     */
+    private static int bucketOf(long value) {
+        if (value < (1L << SUB_BITS)) {
+            return (int) value;
+        }
+        int top = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (top - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return ((top - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * the biggest value that lands in bucket
+     */
+    private static long bucketTop(int bucket) {
+        if (bucket < (1 << SUB_BITS)) {
+            return bucket;
+        }
+        int top = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long sub = bucket & ((1 << SUB_BITS) - 1);
+        long low = (1L << top) | (sub << (top - SUB_BITS));
+        return low + (1L << (top - SUB_BITS)) - 1;
+    }
+
+    /**
+     * a read only copy of a histogram's numbers, in milliseconds. JMX shows it as a composite value
+     */
+    public static class Summary {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        public Summary(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                       double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                    count, meanMillis, p50Millis, p90Millis, p99Millis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/**
+ *  Leaderboard keeps the best finished games of every level: fewest turns first, then fastest, then earliest.
+ *  It's built for lots of games finishing at once (the GameServer can have thousands of sessions):
+ *  every level keeps its best KEPT results in a ConcurrentSkipListSet, so reading the top 10 never locks or waits
+ *  on a write, and the per level totals are LongAdders. A result that can't make the board is turned away after
+ *  one look at the current worst entry, so most writes touch nothing but the adders. one that might make it is
+ *  added and the board trimmed back to KEPT under the level's lock, so whether it made it is decided in one step.
+ *
+ *  results that make the board are also put on a lock-free queue that a background thread writes to disk in
+ *  batches, forcing the file once per batch instead of once per game. the file is an append-only list of
+ *  fixed-size records and is read back (and compacted if it has grown) when the leaderboard is opened.
+ *  the totals aren't saved, they count what has been played since the leaderboard was opened.
+ *
+ *  file layout, big endian: MAGIC (int), VERSION (int), then records of level ordinal (int), turns (int),
+ *  elapsed millis (long), seed (long), finished at (long, epoch millis). a torn last record is ignored
+ *
+ **/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class Leaderboard implements AutoCloseable {
+    public static final int MAGIC = 0x4D474C42; //"MGLB"
+    public static final int VERSION = 1;
+    public static final int KEPT = 100; //results kept per level
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = 4 + 4 + 8 + 8 + 8;
+    private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(200); //longest a result waits to be written
+    private static final int COMPACT_FACTOR = 4; //the file is rewritten on open once it holds this many times what's kept
+
+    private static final LongAdder RECORDED = MetricsRegistry.getShared().counter("leaderboard.results");
+    private static final LongAdder WRITES = MetricsRegistry.getShared().counter("leaderboard.batches"); //batches written and forced
+
+    private final Board[] boards = new Board[Level.values().length];
+    private final AtomicLong sequence = new AtomicLong(); //breaks ties so two equal results are both kept
+    private final ConcurrentLinkedQueue<Result> pending = new ConcurrentLinkedQueue<>(); //results waiting to be written
+    private final Path path; //the file, null for a leaderboard that's only in memory
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failure; //first write error, saving stops after it
+
+    /**
+     * a finished game
+     */
+    public static final class Result implements Comparable<Result> {
+        private final Level level;
+        private final int turns;
+        private final long elapsedMillis;
+        private final long seed; //the seed the board was dealt with, so it can be played again
+        private final long finishedAt; //epoch millis
+        private final long order; //tie breaker, later results rank below earlier equal ones
+
+        Result(Level level, int turns, long elapsedMillis, long seed, long finishedAt, long order) {
+            this.level = level;
+            this.turns = turns;
+            this.elapsedMillis = elapsedMillis;
+            this.seed = seed;
+            this.finishedAt = finishedAt;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Result other) {
+            if (turns != other.turns) {
+                return Integer.compare(turns, other.turns);
+            }
+            if (elapsedMillis != other.elapsedMillis) {
+                return Long.compare(elapsedMillis, other.elapsedMillis);
+            }
+            return Long.compare(order, other.order);
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public long getFinishedAt() {
+            return finishedAt;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d turns in %.1fs", turns, elapsedMillis / 1000.0);
+        }
+    }
+
+    /**
+     * the results and totals of one level
+     */
+    private static final class Board {
+        private final ConcurrentSkipListSet<Result> top = new ConcurrentSkipListSet<>(); //best first
+        private final AtomicInteger size = new AtomicInteger(); //top.size() walks the whole set, this doesn't
+        private final LongAdder games = new LongAdder();
+        private final LongAdder turns = new LongAdder();
+
+        /**
+         * returns true if result would make the board right now
+         */
+        boolean qualifies(int turns, long elapsedMillis) {
+            if (size.get() < KEPT) {
+                return true;
+            }
+            Result worst = top.isEmpty() ? null : top.last();
+            return worst == null || turns < worst.turns || (turns == worst.turns && elapsedMillis < worst.elapsedMillis);
+        }
+
+        /**
+         * adds a result and drops the worst one if the board is over KEPT. adding and trimming hold the board's
+         * lock so two results racing for the last place can't both be told they made it: the one that's dropped
+         * is the one that gets false. readers of top don't take the lock
+         * @return true if result is on the board afterwards
+         */
+        synchronized boolean add(Result result) {
+            top.add(result);
+            if (size.incrementAndGet() > KEPT) {
+                Result dropped = top.pollLast();
+                size.decrementAndGet();
+                return dropped != result;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * opens a leaderboard saved at path, creating the file if there isn't one, and starts the writer thread
+     * @param path the leaderboard file, or null to keep it in memory only
+     * @throws IOException if the file can't be read or isn't a leaderboard
+     */
+    public Leaderboard(Path path) throws IOException {
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new Board();
+        }
+        this.path = path;
+        if (path == null) {
+            channel = null;
+            writer = null;
+            return;
+        }
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        int records = load();
+        if (records > COMPACT_FACTOR * KEPT * boards.length) {
+            compact();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        long size = channel.size();
+        if (size > HEADER_BYTES && (size - HEADER_BYTES) % RECORD_BYTES != 0) {
+            channel.truncate(size - (size - HEADER_BYTES) % RECORD_BYTES); //drop a torn record so new ones line up
+        }
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        writer = new Thread(this::writeLoop, "leaderboard-writer");
+        writer.setDaemon(true); //close() drains it, but don't keep the app alive if nobody calls it
+        writer.start();
+    }
+
+    /**
+     * records a finished game. any thread can call this. a result that can't make the board is turned away
+     * without locking, only one that might make it takes the level's lock to be added
+     * @param level the level played
+     * @param turns turns it took
+     * @param elapsedMillis how long it took
+     * @param seed the seed the board was dealt with
+     * @return true if the result made the level's board
+     */
+    public boolean record(Level level, int turns, long elapsedMillis, long seed) {
+        Board board = boards[level.ordinal()];
+        board.games.increment();
+        board.turns.add(turns);
+        RECORDED.increment();
+        if (!board.qualifies(turns, elapsedMillis)) {
+            return false;
+        }
+        Result result = new Result(level, turns, elapsedMillis, seed, System.currentTimeMillis(),
+                sequence.getAndIncrement());
+        if (!board.add(result)) {
+            return false; //a better result got the last place first
+        }
+        if (channel != null && !closed) {
+            pending.offer(result);
+        }
+        return true;
+    }
+
+    /**
+     * returns the best results for a level, best first. it reads the sorted set as it is, it doesn't copy or lock it
+     * @param level the level
+     * @param n how many results at most
+     * @return the results
+     */
+    public List<Result> top(Level level, int n) {
+        List<Result> results = new ArrayList<>(Math.min(n, KEPT));
+        for (Result result : boards[level.ordinal()].top) {
+            if (results.size() == n) {
+                break;
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * returns how many games of a level were recorded since the leaderboard was opened
+     * @param level the level
+     * @return long
+     */
+    public long getGamesPlayed(Level level) {
+        return boards[level.ordinal()].games.sum();
+    }
+
+    /**
+     * returns the average turns of the games of a level recorded since the leaderboard was opened
+     * @param level the level
+     * @return the average, 0 if none were played
+     */
+    public double getAverageTurns(Level level) {
+        Board board = boards[level.ordinal()];
+        long games = board.games.sum();
+        return games == 0 ? 0 : (double) board.turns.sum() / games;
+    }
+
+    /**
+     * writes out what's still waiting and closes the file
+     * @throws IOException if any write failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * the writer thread: every BATCH_NANOS it takes everything that's queued, writes it in one go and forces it
+     */
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 1024);
+        while (true) {
+            boolean last = closed;
+            Result result;
+            while ((result = pending.poll()) != null) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    write(buffer, false);
+                }
+                buffer.putInt(result.level.ordinal()).putInt(result.turns).putLong(result.elapsedMillis)
+                        .putLong(result.seed).putLong(result.finishedAt);
+            }
+            if (buffer.position() > 0) {
+                write(buffer, true);
+            }
+            if (last) {
+                return;
+            }
+            LockSupport.parkNanos(this, BATCH_NANOS);
+        }
+    }
+
+    /**
+     * writes the buffer to the file, and forces it out to the disk if force is true
+     */
+    private void write(ByteBuffer buffer, boolean force) {
+        buffer.flip();
+        if (failure == null) {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (force) {
+                    channel.force(false);
+                    WRITES.increment();
+                }
+            } catch (IOException e) {
+                failure = e;
+                System.err.println("leaderboard write failed, results won't be saved: " + e);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * reads the file into the boards
+     * @return the number of records in it
+     */
+    private int load() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() == 0) {
+            return 0;
+        }
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a leaderboard");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " is leaderboard version " + version + ", expected " + VERSION);
+        }
+        Level[] levels = Level.values();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_BYTES) {
+            int ordinal = buffer.getInt();
+            int turns = buffer.getInt();
+            long elapsedMillis = buffer.getLong();
+            long seed = buffer.getLong();
+            long finishedAt = buffer.getLong();
+            records++;
+            if (ordinal < 0 || ordinal >= levels.length) {
+                continue;
+            }
+            Board board = boards[ordinal];
+            if (board.qualifies(turns, elapsedMillis)) {
+                board.add(new Result(levels[ordinal], turns, elapsedMillis, seed, finishedAt, sequence.getAndIncrement()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * rewrites the file with just the results that are kept, through a temp file so a crash leaves the old one
+     */
+    private void compact() throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + RECORD_BYTES * KEPT * boards.length);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            for (Board board : boards) {
+                for (Result result : board.top) {
+                    buffer.putInt(result.level.ordinal()).putInt(result.turns).putLong(result.elapsedMillis)
+                            .putLong(result.seed).putLong(result.finishedAt);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * opens the leaderboard named by GameSettings.getLeaderboardPath(). if that's empty, or the file can't be read,
+     * the leaderboard is kept in memory only so the game still runs
+     * @return Leaderboard
+     */
+    public static Leaderboard open() {
+        String path = GameSettings.getLeaderboardPath();
+        if (path != null && !path.isEmpty()) {
+            try {
+                return new Leaderboard(Path.of(path));
+            } catch (IOException e) {
+                System.err.println("couldn't open the leaderboard, it won't be saved: " + e);
+            }
+        }
+        try {
+            return new Leaderboard(null);
+        } catch (IOException e) {
+            throw new RuntimeException(e); //nothing is read without a file
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *  Level lists the levels that can be picked in the GamePane combobox and the board size for each one.
+ *  It has no JavaFX in it so the simulator and other headless code use the same table as the game.
+ *  The large levels need generated faces and are only shown when large boards are switched on.
+ *
+ **/
+
+public enum Level {
+    ONE("level one", 2, 3),
+    TWO("level two", 2, 4),
+    THREE("level three", 4, 4),
+    FOUR("level four", 4, 6),
+    FIVE("level five", 6, 6),
+    SIX("level six", 8, 8),
+    SEVEN("level seven", 16, 16, true),
+    EIGHT("level eight", 32, 32, true),
+    NINE("level nine", 64, 64, true),
+    TEN("level ten", 100, 100, true),
+    ELEVEN("level eleven", 1000, 1000, true);
+
+    private final String name; //what the combobox shows
+    private final int rows;
+    private final int cols;
+    private final boolean large; //past the shipped faces, only offered when GameSettings.isLargeBoards() is on
+
+    Level(String name, int rows, int cols) {
+        this(name, rows, cols, false);
+    }
+
+    Level(String name, int rows, int cols, boolean large) {
+        this.name = name;
+        this.rows = rows;
+        this.cols = cols;
+        this.large = large;
+    }
+
+    /**
+     * returns the level with the given combobox name. no name (nothing picked yet) or an unknown one is level six,
+     * the full 8x8 board, same as the game starts with
+     * @param name the combobox text
+     * @return Level
+     */
+    public static Level fromName(String name) {
+        for (Level level : values()) {
+            if (level.name.equals(name)) {
+                return level;
+            }
+        }
+        return SIX;
+    }
+
+    /**
+     * returns the level with the given board size
+     * @param rows
+     * @param cols
+     * @return Level, or null if no level has that size
+     */
+    public static Level fromSize(int rows, int cols) {
+        for (Level level : values()) {
+            if (level.rows == rows && level.cols == cols) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getCardCount() {
+        return rows * cols;
+    }
+
+    public boolean isLarge() {
+        return large;
+    }
+}
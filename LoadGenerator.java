@@ -0,0 +1,293 @@
+/**
+ *  LoadGenerator drives a GameServer with lots of simulated clients to see how many moves per second it keeps up
+ *  with and how long a move takes. Every client is a connection of its own on its own thread (virtual threads
+ *  when the JDK has them, see GameServer.newThreadPerTaskExecutor) that plays game after game with a perfect
+ *  memory bot: it flips a card it hasn't seen, and flips its partner if it has already seen that face.
+ *  Every FLIP round trip goes into a LatencyHistogram. All the clients connect before the clock starts, so
+ *  connecting isn't counted in the results.
+ *
+ *  usage: java LoadGenerator [clients] [seconds] [rows] [cols] [port | --embedded]
+ *  --embedded starts a GameServer in the same JVM on a free port instead of using one that's already running,
+ *  with a Leaderboard in a temp file, and prints how the leaderboard did at the end
+ *
+ **/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadGenerator {
+    private final int clients;
+    private final int rows;
+    private final int cols;
+    private final int port;
+    private final LatencyHistogram latency = new LatencyHistogram(); //FLIP round trips
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder games = new LongAdder(); //games played to the end
+    private final LongAdder failures = new LongAdder(); //clients that couldn't connect or got a bad reply
+    private volatile boolean running; //clients stop starting new moves once this goes false
+
+    /**
+     * @param clients number of simulated clients
+     * @param rows board rows every client plays
+     * @param cols board columns
+     * @param port the server's port on localhost
+     */
+    public LoadGenerator(int clients, int rows, int cols, int port) {
+        this.clients = clients;
+        this.rows = rows;
+        this.cols = cols;
+        this.port = port;
+    }
+
+    /**
+     * connects every client, lets them play for the given time and prints the results
+     * @param seconds how long to play for once everyone is connected
+     */
+    public void run(int seconds) throws InterruptedException {
+        ExecutorService threads = GameServer.newThreadPerTaskExecutor("load-client-");
+        CountDownLatch connected = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            threads.execute(() -> {
+                try {
+                    client(seed, connected, go);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        connected.await();
+        System.out.printf("%,d clients connected in %.1fs (%,d failed), playing %dx%d boards for %ds%n",
+                clients, (System.nanoTime() - connectStart) / 1e9, failures.sum(), rows, cols, seconds);
+        running = true;
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        long elapsed = System.nanoTime() - start;
+        done.await(30, TimeUnit.SECONDS);
+        threads.shutdownNow();
+
+        LatencyHistogram.Summary summary = latency.summary();
+        System.out.printf("%,d moves in %.1fs: %,.0f moves/sec, %,d games finished, %,d client failures%n",
+                moves.sum(), elapsed / 1e9, moves.sum() / (elapsed / 1e9), games.sum(), failures.sum());
+        System.out.printf("move latency: mean %.3fms, p50 %.3fms, p90 %.3fms, p99 %.3fms, max %.3fms%n",
+                summary.getMeanMillis(), summary.getP50Millis(), summary.getP90Millis(),
+                summary.getP99Millis(), summary.getMaxMillis());
+    }
+
+    /**
+     * one simulated client: connects, waits for the start and plays until running goes false
+     */
+    private void client(long seed, CountDownLatch connected, CountDownLatch go) {
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            failures.increment();
+            connected.countDown();
+            return;
+        }
+        connected.countDown();
+        try (socket) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 256);
+            OutputStream out = socket.getOutputStream();
+            go.await();
+            Bot bot = new Bot(rows * cols, new SplittableRandom(seed));
+            while (running) {
+                if (!call(in, out, "NEW " + rows + " " + cols).startsWith("OK")) {
+                    throw new IOException("server wouldn't deal a " + rows + "x" + cols + " board");
+                }
+                if (bot.play(in, out)) {
+                    games.increment();
+                }
+            }
+            call(in, out, "QUIT");
+        } catch (IOException e) {
+            if (running) {
+                failures.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * sends one command and waits for its reply
+     */
+    private static String call(BufferedReader in, OutputStream out, String command) throws IOException {
+        out.write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new IOException("server hung up");
+        }
+        return reply;
+    }
+
+    /**
+     * a player that remembers every face it has seen, the same as BotSimulator's PERFECT player
+     */
+    private final class Bot {
+        private final int[] seen; //pair id seen at each card, -1 if it hasn't been seen
+        private final int[] firstSeen; //first card each pair id was seen at, -1 if none
+        private final int[] secondSeen; //second card each pair id was seen at, -1 if none
+        private final boolean[] matched; //pair ids that have been matched
+        private final int[] known; //stack of pair ids whose two cards have both been seen
+        private int knownCount;
+        private final int[] order; //cards in the order this bot tries unseen ones
+        private final SplittableRandom random;
+
+        Bot(int cards, SplittableRandom random) {
+            seen = new int[cards];
+            firstSeen = new int[cards / 2];
+            secondSeen = new int[cards / 2];
+            matched = new boolean[cards / 2];
+            known = new int[cards / 2];
+            order = new int[cards];
+            this.random = random;
+        }
+
+        /**
+         * plays one game that's already been dealt
+         * @return true if it was played to the end, false if running went false first
+         */
+        boolean play(BufferedReader in, OutputStream out) throws IOException {
+            Arrays.fill(seen, -1);
+            Arrays.fill(firstSeen, -1);
+            Arrays.fill(secondSeen, -1);
+            Arrays.fill(matched, false);
+            knownCount = 0;
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Deck.shuffle(order, random);
+            int next = 0; //position in order of the next card to look at
+            while (running) {
+                while (knownCount > 0 && matched[known[knownCount - 1]]) {
+                    knownCount--;
+                }
+                int first;
+                int second;
+                if (knownCount > 0) {
+                    int pairId = known[--knownCount];
+                    first = firstSeen[pairId];
+                    second = secondSeen[pairId];
+                    flip(in, out, first);
+                } else {
+                    while (seen[order[next]] >= 0) {
+                        next++;
+                    }
+                    first = order[next];
+                    int pairId = pairIdOf(flip(in, out, first));
+                    if (secondSeen[pairId] >= 0) {
+                        second = firstSeen[pairId];
+                    } else {
+                        while (seen[order[next]] >= 0) {
+                            next++;
+                        }
+                        second = order[next];
+                    }
+                }
+                String reply = flip(in, out, second);
+                if (reply.startsWith("WON")) {
+                    return true;
+                } else if (reply.startsWith("MATCH")) {
+                    matched[pairIdOf(reply)] = true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * flips a card, timing the round trip, and remembers its face
+         */
+        private String flip(BufferedReader in, OutputStream out, int index) throws IOException {
+            long start = System.nanoTime();
+            String reply = call(in, out, "FLIP " + index);
+            latency.record(System.nanoTime() - start);
+            moves.increment();
+            if (!(reply.startsWith("FIRST") || reply.startsWith("MATCH") || reply.startsWith("MISS")
+                    || reply.startsWith("WON"))) {
+                throw new IOException("unexpected reply to FLIP " + index + ": " + reply);
+            }
+            int pairId = pairIdOf(reply);
+            if (seen[index] < 0) {
+                seen[index] = pairId;
+                if (firstSeen[pairId] < 0) {
+                    firstSeen[pairId] = index;
+                } else {
+                    secondSeen[pairId] = index;
+                    known[knownCount++] = pairId;
+                }
+            }
+            return reply;
+        }
+
+        private int pairIdOf(String reply) {
+            int start = reply.indexOf(' ') + 1;
+            int end = reply.indexOf(' ', start);
+            return Integer.parseInt(reply.substring(start, end < 0 ? reply.length() : end));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : Level.SIX.getRows();
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : Level.SIX.getCols();
+        boolean embedded = args.length > 4 && args[4].equals("--embedded");
+        Path leaderboardFile = embedded ? Files.createTempFile("leaderboard", ".bin") : null;
+        Leaderboard leaderboard = embedded ? new Leaderboard(leaderboardFile) : null;
+        GameServer server = embedded ? new GameServer(0, leaderboard) : null;
+        int port = server != null ? server.getPort() : args.length > 4 ? Integer.parseInt(args[4]) : GameServer.DEFAULT_PORT;
+        System.out.printf("%s threads%s%n", GameServer.hasVirtualThreads() ? "virtual" : "platform",
+                server != null ? ", embedded server on port " + port : "");
+        try {
+            new LoadGenerator(clients, rows, cols, port).run(seconds);
+        } finally {
+            if (server != null) {
+                server.close();
+                printLeaderboard(leaderboard, Level.fromSize(rows, cols));
+                leaderboard.close();
+                Files.deleteIfExists(leaderboardFile);
+            }
+        }
+    }
+
+    /**
+     * prints how the embedded server's leaderboard did: the best results and how long a top 10 query takes
+     */
+    private static void printLeaderboard(Leaderboard leaderboard, Level level) {
+        if (level == null) {
+            return;
+        }
+        int queries = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            leaderboard.top(level, 10);
+        }
+        long perQuery = (System.nanoTime() - start) / queries;
+        System.out.printf("leaderboard: %,d %s games, %.1f turns on average, top 10 query %,dns, best %s%n",
+                leaderboard.getGamesPlayed(level), level.getName(), leaderboard.getAverageTurns(level), perQuery,
+                leaderboard.top(level, 3));
+    }
+}
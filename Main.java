@@ -2,7 +2,7 @@
  * @author Zuri McKee
  *  Mason section 4
  *  4/22/2025
- *  the Main class intantiates references to the Card and GamePane classes
+ *  the Main class intantiates the GamePane class
  *  The Card class composes the smaller card components of the memory game, and the GamePane
  *  class is a BorderPane that holds the Cards and the other buttons and UI components. The
  *  CardGridPane class isn't instantiated in main because it's a field of the GamePane class
@@ -10,29 +10,70 @@
 
 import javafx.application.Application;
 import javafx.stage.Stage;
+import javafx.application.ConditionalFeature;
+import javafx.application.Platform;
+import javafx.scene.PerspectiveCamera;
 import javafx.scene.Scene;
 import java.io.FileNotFoundException;
+import java.nio.file.Path;
 
 public class Main extends Application {
+    private GamePane gp; //kept so stop() can shut it down
 
-    //funny thing is, in the lower levels since I shuffled the images sometimes it ends in a draw because
-    //there are no matches
+    //the lower levels used to sometimes end in a draw because the cards were taken from a shuffled 8x8 deck
+    //and some of them didn't have their pair on the board. Deck.deal only deals whole pairs now, and
+    //BotSimulator checks every deal it plays for unpaired cards
 
-    //sets the scene with the card objects and the other ui objects in the gridpane
+    //sets the scene with the card objects and the other ui objects in the gridpane.
+    //only what's on screen in the first frame is loaded here, the sounds start loading once it's up
     @Override
     public void start(Stage appStage) throws FileNotFoundException {
-        Card card = new Card();
-        card.setCardAndImageSize(64, 64);
-        GamePane gp = new GamePane();
+        StartupTimer.mark("toolkit");
+        if (GameSettings.isAtlasCompare()) {
+            TextureAtlas.compareStartup(System.out);
+        }
+        if (GameSettings.isAtlasMode()) {
+            TextureAtlas.getShared();
+        } else {
+            ImageCache.getShared().get(TextureAtlas.BACK_PATH);
+        }
+        StartupTimer.mark("assets");
+        gp = new GamePane();
         Scene scene = new Scene(gp);
+        if (Platform.isSupported(ConditionalFeature.SCENE3D)) {
+            scene.setCamera(new PerspectiveCamera()); //lays out the same as the default camera, but card flips get depth
+        }
+        StartupTimer.mark("grid");
+        StartupTimer.markFirstPulse(scene, () -> {
+            gp.preloadSounds();
+            MetricsRegistry.registerMBean();
+            if (GameSettings.isFpsCheck()) {
+                FrameRateMonitor.getShared().start();
+            }
+            if (GameSettings.isPerformanceOverlay()) {
+                gp.setPerformanceOverlay(true);
+            }
+        });
         appStage.setScene(scene);
         appStage.setTitle("Concentration");
         appStage.show();
+        if (GameSettings.getReplayPath() != null) {
+            new MoveLogReplayer(Path.of(GameSettings.getReplayPath()), GameSettings.getReplaySpeed()).start(gp);
+        }
 
     }
 
+    //closes the move log so everything that was played makes it to disk
+    @Override
+    public void stop() {
+        if (gp != null) {
+            gp.shutdown();
+        }
+    }
+
     //launches javafx application
     public static void main(String[] args) {
+        StartupTimer.mark("jvm");
         launch(args);
     }
 
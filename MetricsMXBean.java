@@ -0,0 +1,26 @@
+/**
+ *  MetricsMXBean is the JMX view of the MetricsRegistry, registered as memorygame:type=Metrics so jconsole,
+ *  VisualVM or any JMX client can read the game's counters and latencies while it runs.
+ *
+ **/
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+    /**
+     * every counter by name
+     * @return name to count
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * every latency histogram by name, as count, mean, p50, p90, p99 and max in milliseconds
+     * @return name to summary
+     */
+    Map<String, LatencyHistogram.Summary> getLatencies();
+
+    /**
+     * zeroes every counter and histogram
+     */
+    void reset();
+}
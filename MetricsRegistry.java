@@ -0,0 +1,88 @@
+/**
+ *  MetricsRegistry holds the game's counters and latency histograms by name. Code that records on a hot path
+ *  looks its counter or histogram up once and keeps it in a static field, so recording is just an add.
+ *  The registry is readable over JMX through MetricsMXBean once registerMBean() has been called.
+ *
+ **/
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsRegistry implements MetricsMXBean {
+    public static final String OBJECT_NAME = "memorygame:type=Metrics";
+    private static final MetricsRegistry shared = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * returns the registry the whole game records into
+     * @return MetricsRegistry
+     */
+    public static MetricsRegistry getShared() {
+        return shared;
+    }
+
+    /**
+     * returns the counter with this name, making it the first time
+     * @param name counter name
+     * @return the counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * returns the latency histogram with this name, making it the first time
+     * @param name histogram name
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    @Override
+    public Map<String, LatencyHistogram.Summary> getLatencies() {
+        TreeMap<String, LatencyHistogram.Summary> values = new TreeMap<>();
+        histograms.forEach((name, histogram) -> values.put(name, histogram.summary()));
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * registers the shared registry with the platform MBean server. it's done after startup instead of when the
+     * class loads because bringing up JMX costs more than the rest of startup
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(shared, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            //already registered, nothing to do
+        } catch (JMException e) {
+            System.err.println("couldn't register the metrics MBean: " + e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "counters " + getCounters() + ", latencies " + getLatencies();
+    }
+}
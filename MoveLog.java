@@ -0,0 +1,219 @@
+/**
+ *  MoveLog appends every deal, flip and resolve of a game to a compact binary file so games can be replayed
+ *  (MoveLogReplayer) or looked at afterwards (MoveLogReader). Each record is a type byte, a System.nanoTime()
+ *  timestamp and a few ints, written big endian.
+ *  The FX thread only copies the record into an in-memory buffer, full buffers are handed to a background thread
+ *  that writes them to a FileChannel opened for append, so clicks never wait on the disk. The buffers go back
+ *  to a free list after they're written, so logging doesn't allocate once it's running. If every buffer is
+ *  still waiting to be written (a big board's deal fills a lot of them) the FX thread takes a new one instead
+ *  of waiting for the writer; the extras are counted in "moveLog.extraBuffers" and dropped once written.
+ *
+ *  file layout: MAGIC (int), VERSION (int), then records
+ *    DEAL    type, nanos, seed (long), rows (int), cols (int), rows*cols pair ids (int each)
+ *    FLIP    type, nanos, index (int), flip result (byte, a GameEngine constant)
+ *    RESOLVE type, nanos, first index (int), second index (int), matched (byte 0/1)
+ *
+ **/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MoveLog implements AutoCloseable {
+    public static final int MAGIC = 0x4D474C47; //"MGLG"
+    public static final int VERSION = 1;
+    public static final byte DEAL = 1;
+    public static final byte FLIP = 2;
+    public static final byte RESOLVE = 3;
+    private static final int BUFFER_SIZE = 32 * 1024; //bytes per buffer, a few hundred flips
+    private static final int BUFFERS = 4; //buffers kept in rotation, more are made when all of them are queued
+    private static final ByteBuffer CLOSE = ByteBuffer.allocate(0); //tells the writer thread to stop
+    private static final LongAdder EXTRA_BUFFERS = MetricsRegistry.getShared().counter("moveLog.extraBuffers"); //made because none were free
+
+    private final FileChannel channel; //the log file, opened for append
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS); //empty buffers ready to fill
+    private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<>(); //filled buffers waiting to be written
+    private final Thread writer; //background thread that does the actual writes
+    private ByteBuffer current; //buffer records are being added to
+    private volatile IOException failure; //first write error, logging stops after it
+    private boolean closed;
+
+    /**
+     * opens (or creates) the log at path and starts the writer thread. a new file gets the header first
+     * @param path the log file
+     * @throws IOException if the file can't be opened
+     */
+    public MoveLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        for (int i = 0; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        current = free.poll();
+        if (channel.size() == 0) {
+            current.putInt(MAGIC).putInt(VERSION);
+        }
+        writer = new Thread(this::writeLoop, "move-log");
+        writer.setDaemon(true); //close() drains it, but don't keep the app alive if nobody calls it
+        writer.start();
+    }
+
+    /**
+     * logs a new board being dealt
+     * @param seed the seed the deck was shuffled with
+     * @param rows
+     * @param cols
+     * @param pairIds pair id of each card, row by row
+     */
+    public synchronized void deal(long seed, int rows, int cols, int[] pairIds) {
+        if (closed) {
+            return;
+        }
+        reserve(1 + 8 + 8 + 4 + 4);
+        current.put(DEAL).putLong(System.nanoTime()).putLong(seed).putInt(rows).putInt(cols);
+        int done = 0;
+        while (done < pairIds.length) {
+            reserve(4); //a big board's layout doesn't fit in one buffer, it's spread over as many as it needs
+            int count = Math.min(current.remaining() / 4, pairIds.length - done);
+            current.asIntBuffer().put(pairIds, done, count); //big endian like the rest, the view starts at position
+            current.position(current.position() + count * 4);
+            done += count;
+        }
+    }
+
+    /**
+     * logs a click on a card and what the engine did with it
+     * @param index card index, row * cols + col
+     * @param result the GameEngine.flip result
+     */
+    public synchronized void flip(int index, int result) {
+        if (closed) {
+            return;
+        }
+        reserve(1 + 8 + 4 + 1);
+        current.put(FLIP).putLong(System.nanoTime()).putInt(index).put((byte) result);
+    }
+
+    /**
+     * logs a face up pair being resolved
+     * @param first index of the first card
+     * @param second index of the second card
+     * @param matched whether they matched
+     */
+    public synchronized void resolve(int first, int second, boolean matched) {
+        if (closed) {
+            return;
+        }
+        reserve(1 + 8 + 4 + 4 + 1);
+        current.put(RESOLVE).putLong(System.nanoTime()).putInt(first).putInt(second).put((byte) (matched ? 1 : 0));
+    }
+
+    /**
+     * hands whatever has been logged so far to the writer thread, called at the end of a game so a crash
+     * doesn't lose it
+     */
+    public synchronized void flush() {
+        if (!closed && current.position() > 0) {
+            handOff();
+        }
+    }
+
+    /**
+     * writes out everything that's left, waits for the writer thread and closes the file
+     * @throws IOException if any write failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flush();
+            closed = true;
+        }
+        full.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * makes sure current has room for bytes more, handing it off first if it doesn't
+     */
+    private void reserve(int bytes) {
+        if (current.remaining() < bytes) {
+            handOff();
+        }
+    }
+
+    /**
+     * queues current for writing and takes an empty buffer to carry on with. never waits for the writer:
+     * if no buffer is free a new one is made, the free list only keeps BUFFERS of them when they come back
+     */
+    private void handOff() {
+        current.flip();
+        full.add(current);
+        current = free.poll();
+        if (current == null) {
+            current = ByteBuffer.allocate(BUFFER_SIZE);
+            EXTRA_BUFFERS.increment();
+        }
+    }
+
+    /**
+     * the writer thread: writes each full buffer to the channel and puts it back on the free list
+     */
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer buffer = full.take();
+                if (buffer == CLOSE) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                        System.err.println("move log write failed, logging stopped: " + e);
+                    }
+                }
+                buffer.clear();
+                free.offer(buffer); //an extra buffer doesn't fit once the free list is full again and is dropped
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * opens the log named by GameSettings.getMoveLogPath(), or returns null if logging is off.
+     * a replay isn't logged again. if the file can't be opened the game still runs, just without a log
+     * @return MoveLog or null
+     */
+    public static MoveLog open() {
+        String path = GameSettings.getMoveLogPath();
+        if (path == null || path.isEmpty() || GameSettings.getReplayPath() != null) {
+            return null;
+        }
+        try {
+            return new MoveLog(Path.of(path));
+        } catch (IOException e) {
+            System.err.println("couldn't open the move log " + path + ", playing without one: " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ *  MoveLogReader walks through a MoveLog file one record at a time. The file is memory mapped, so reading it
+ *  is just stepping through the mapped buffer.
+ *  Running it on its own prints a short summary of every game in the log.
+ *
+ *  usage: java MoveLogReader <log file>
+ *
+ **/
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MoveLogReader {
+    private final MappedByteBuffer buffer; //the whole log file
+    private byte type; //type of the record last read, one of the MoveLog constants
+    private long nanos; //its timestamp
+    private long seed; //DEAL fields
+    private int rows;
+    private int cols;
+    private int[] pairIds;
+    private int first; //card index of a FLIP, first card of a RESOLVE
+    private int second; //second card of a RESOLVE
+    private int result; //GameEngine flip result of a FLIP, 1 if a RESOLVE matched
+
+    /**
+     * maps the log file and checks its header
+     * @param path the log file
+     * @throws IOException if it can't be read or isn't a move log
+     */
+    public MoveLogReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MoveLog.MAGIC) {
+            throw new IOException(path + " is not a move log");
+        }
+        int version = buffer.getInt();
+        if (version != MoveLog.VERSION) {
+            throw new IOException(path + " is move log version " + version + ", expected " + MoveLog.VERSION);
+        }
+    }
+
+    /**
+     * reads the next record. a record cut off at the end of the file (the game was killed mid write) ends the log
+     * @return false when there are no more records
+     * @throws IOException if a record has an unknown type
+     */
+    public boolean next() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        int start = buffer.position();
+        try {
+            type = buffer.get();
+            nanos = buffer.getLong();
+            if (type == MoveLog.DEAL) {
+                seed = buffer.getLong();
+                rows = buffer.getInt();
+                cols = buffer.getInt();
+                pairIds = new int[rows * cols];
+                for (int i = 0; i < pairIds.length; i++) {
+                    pairIds[i] = buffer.getInt();
+                }
+            } else if (type == MoveLog.FLIP) {
+                first = buffer.getInt();
+                result = buffer.get();
+            } else if (type == MoveLog.RESOLVE) {
+                first = buffer.getInt();
+                second = buffer.getInt();
+                result = buffer.get();
+            } else {
+                throw new IOException("unknown record type " + type + " at byte " + start);
+            }
+        } catch (BufferUnderflowException e) {
+            buffer.position(buffer.limit());
+            return false;
+        }
+        return true;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int[] getPairIds() {
+        return pairIds;
+    }
+
+    /**
+     * card index of a FLIP
+     * @return index
+     */
+    public int getIndex() {
+        return first;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getSecond() {
+        return second;
+    }
+
+    /**
+     * the GameEngine.flip result of a FLIP
+     * @return result
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * whether a RESOLVE matched
+     * @return boolean
+     */
+    public boolean isMatched() {
+        return result == 1;
+    }
+
+    /**
+     * prints one line per game in the log: board size, turns, pairs found, how long it took and
+     * the average time between clicks
+     * @param args the log file
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: java MoveLogReader <log file>");
+            return;
+        }
+        MoveLogReader reader = new MoveLogReader(Path.of(args[0]));
+        System.out.printf("%-5s %-9s %6s %6s %6s %10s %10s%n", "game", "board", "turns", "pairs", "clicks", "seconds", "ms/click");
+        int game = 0;
+        long dealtAt = 0;
+        long lastAt = 0;
+        int turns = 0;
+        int pairs = 0;
+        int clicks = 0;
+        String board = null;
+        while (reader.next()) {
+            if (reader.getType() == MoveLog.DEAL) {
+                if (board != null) {
+                    printGame(++game, board, turns, pairs, clicks, lastAt - dealtAt);
+                }
+                board = reader.getRows() + "x" + reader.getCols();
+                dealtAt = reader.getNanos(); //every run of the game starts with a deal, so the game's times all come from one JVM
+                lastAt = dealtAt;
+                turns = 0;
+                pairs = 0;
+                clicks = 0;
+            } else if (reader.getType() == MoveLog.FLIP) {
+                if (reader.getResult() != GameEngine.IGNORED) {
+                    clicks++;
+                }
+            } else {
+                turns++;
+                if (reader.isMatched()) {
+                    pairs++;
+                }
+            }
+            if (reader.getNanos() >= dealtAt) {
+                lastAt = reader.getNanos(); //timestamps only mean something next to ones from the same run
+            }
+        }
+        if (board != null) {
+            printGame(++game, board, turns, pairs, clicks, lastAt - dealtAt);
+        }
+    }
+
+    private static void printGame(int game, String board, int turns, int pairs, int clicks, long nanos) {
+        System.out.printf("%-5d %-9s %6d %6d %6d %10.1f %10.0f%n", game, board, turns, pairs, clicks, nanos / 1e9,
+                clicks == 0 ? 0.0 : nanos / 1e6 / clicks);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *  MoveLogReplayer plays a MoveLog back into a GamePane. It reads the log on its own thread, waits out the
+ *  time between records (divided by the speed) and hands each record to the GamePane on the FX thread,
+ *  so the board goes through the same deals, flips and resolves as the logged game.
+ *  Every game is timed from its own deal, the time between one game and the next isn't waited out.
+ *  A speed of 1 is real time, 10 is ten times faster and 0 goes as fast as the FX thread can keep up.
+ *
+ **/
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+public class MoveLogReplayer {
+    private static final int MAX_SPEED_BATCH = 256; //records posted to the FX thread before waiting for it to catch up at speed 0
+
+    private final Path path; //the log to play
+    private final double speed; //how many times faster than real time, 0 for as fast as possible
+
+    /**
+     * creates a replayer for a log file
+     * @param path the move log
+     * @param speed 1 for real time, 10 for ten times faster, 0 for as fast as possible
+     */
+    public MoveLogReplayer(Path path, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must be 0 or more: " + speed);
+        }
+        this.path = path;
+        this.speed = speed;
+    }
+
+    /**
+     * starts playing the log into gamePane on a background thread. the pane ignores the mouse until it's done
+     * @param gamePane where to play the log
+     * @return the replay thread
+     */
+    public Thread start(GamePane gamePane) {
+        gamePane.setReplaying(true);
+        Thread thread = new Thread(() -> {
+            try {
+                play(gamePane);
+            } catch (IOException e) {
+                System.err.println("replay of " + path + " stopped: " + e);
+            } finally {
+                Platform.runLater(() -> gamePane.setReplaying(false));
+            }
+        }, "move-replay");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * reads every record, waiting between them, and applies them on the FX thread
+     */
+    private void play(GamePane gamePane) throws IOException {
+        MoveLogReader reader = new MoveLogReader(path);
+        long logStart = -1; //timestamp of the last deal, the records after it are timed from there
+        long wallStart = System.nanoTime(); //when that deal was replayed
+        int posted = 0;
+        while (reader.next()) {
+            long nanos = reader.getNanos();
+            //the log is appended to by every run of the game and nanoTime starts somewhere different in each JVM,
+            //so times are only compared within a game. every run starts with a deal (a resumed game logs one too)
+            if (logStart < 0 || reader.getType() == MoveLog.DEAL || nanos < logStart) {
+                logStart = nanos;
+                wallStart = System.nanoTime();
+            }
+            if (speed > 0) {
+                long due = wallStart + (long) ((nanos - logStart) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else if (++posted % MAX_SPEED_BATCH == 0) {
+                awaitFxThread();
+            }
+            Platform.runLater(apply(reader, gamePane));
+        }
+    }
+
+    /**
+     * turns the record the reader is on into a task for the FX thread. the fields are copied out because the
+     * reader moves on before the task runs
+     */
+    private static Runnable apply(MoveLogReader reader, GamePane gamePane) {
+        if (reader.getType() == MoveLog.DEAL) {
+            long seed = reader.getSeed();
+            int rows = reader.getRows();
+            int cols = reader.getCols();
+            int[] pairIds = reader.getPairIds();
+            return () -> gamePane.replayDeal(seed, rows, cols, pairIds);
+        } else if (reader.getType() == MoveLog.FLIP) {
+            int index = reader.getIndex();
+            return () -> gamePane.replayFlip(index);
+        } else {
+            int first = reader.getFirst();
+            int second = reader.getSecond();
+            return () -> gamePane.replayResolve(first, second);
+        }
+    }
+
+    /**
+     * waits until everything posted so far has run, so a fast replay doesn't pile up the FX event queue
+     */
+    private static void awaitFxThread() {
+        CountDownLatch latch = new CountDownLatch(1);
+        Platform.runLater(latch::countDown);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
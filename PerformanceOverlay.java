@@ -0,0 +1,195 @@
+/**
+ *  PerformanceOverlay is a one line readout of how the game is keeping up, shown in GamePane's status pane:
+ *  frames per second (from the FrameRateMonitor), the 50th and 99th percentile pulse time over the last second,
+ *  how many nodes are in the scene, heap in use out of the heap size, and the latency from the last card click
+ *  to the frame that showed the flip.
+ *  The pulse time is what the FX thread spends on css and layout each pulse, from the scene's pre layout
+ *  listener to its post layout one, it goes into the "fx.pulse" histogram too. rendering happens on the render
+ *  thread afterwards and isn't part of it.
+ *  It's drawn on a Canvas and the numbers are drawn a digit at a time out of a static table, so refreshing it
+ *  doesn't build any strings and doesn't allocate. It refreshes twice a second, and only while it's shown, so
+ *  it doesn't change much of what it's measuring.
+ *
+ **/
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.concurrent.TimeUnit;
+
+public class PerformanceOverlay extends Canvas {
+    private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1); //how much the pulse percentiles cover
+    private static final Font FONT = Font.font("Monospaced", 12);
+    private static final double LOW_FPS = 55; //drawn in red under this
+    private static final LatencyHistogram PULSE_TIME = MetricsRegistry.getShared().histogram("fx.pulse");
+
+    private final GamePane gamePane; //where the last flip latency comes from
+    private final LatencyHistogram pulses = new LatencyHistogram(); //pulse times since the window started
+    private final double charWidth; //every character is this wide, the font is monospaced
+    private final Runnable pulseStarted = this::pulseStarted;
+    private final Runnable pulseLaidOut = this::pulseLaidOut;
+    private final int[] digits = new int[20]; //scratch for drawing a number, a long has at most 19 digits
+    private Scene scene; //the scene the pulse listeners are on, null while stopped
+    private long pulseStart; //System.nanoTime() of the current pulse's pre layout
+    private long windowStart; //when pulses was last reset
+    private long lastRefresh;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (now - lastRefresh >= REFRESH_NANOS) {
+                lastRefresh = now;
+                refresh(now);
+            }
+        }
+    };
+
+    /**
+     * @param gamePane the pane whose flips are timed
+     */
+    public PerformanceOverlay(GamePane gamePane) {
+        this.gamePane = gamePane;
+        Text sample = new Text("0");
+        sample.setFont(FONT);
+        charWidth = sample.getLayoutBounds().getWidth();
+        setWidth(charWidth * 84);
+        setHeight(FONT.getSize() + 6);
+    }
+
+    /**
+     * starts measuring and refreshing, the pane has to be in a scene. FX thread only
+     */
+    public void start() {
+        if (scene != null || getScene() == null) {
+            return;
+        }
+        scene = getScene();
+        scene.addPreLayoutPulseListener(pulseStarted);
+        scene.addPostLayoutPulseListener(pulseLaidOut);
+        FrameRateMonitor.getShared().start();
+        pulses.reset();
+        windowStart = System.nanoTime();
+        lastRefresh = 0;
+        timer.start();
+    }
+
+    /**
+     * stops measuring, the frame rate monitor keeps running if something else started it too. FX thread only
+     */
+    public void stop() {
+        if (scene == null) {
+            return;
+        }
+        timer.stop();
+        FrameRateMonitor.getShared().stop();
+        scene.removePreLayoutPulseListener(pulseStarted);
+        scene.removePostLayoutPulseListener(pulseLaidOut);
+        scene = null;
+    }
+
+    public boolean isRunning() {
+        return scene != null;
+    }
+
+    private void pulseStarted() {
+        pulseStart = System.nanoTime();
+    }
+
+    private void pulseLaidOut() {
+        if (pulseStart != 0) {
+            long time = System.nanoTime() - pulseStart;
+            pulses.record(time);
+            PULSE_TIME.record(time);
+            pulseStart = 0;
+        }
+    }
+
+    /**
+     * redraws every readout
+     */
+    private void refresh(long now) {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        gc.setFont(FONT);
+        double y = FONT.getSize() + 2;
+        double fps = FrameRateMonitor.getShared().getFps();
+        gc.setFill(fps < LOW_FPS ? Color.RED : Color.BLACK);
+        double x = drawText(gc, "fps ", 0, y);
+        x = drawMillis(gc, fps, x, y);
+        gc.setFill(Color.BLACK);
+        x = drawText(gc, "  pulse p50 ", x, y);
+        x = drawMillis(gc, pulses.getPercentileNanos(50) / 1e6, x, y);
+        x = drawText(gc, " p99 ", x, y);
+        x = drawMillis(gc, pulses.getPercentileNanos(99) / 1e6, x, y);
+        x = drawText(gc, "ms  nodes ", x, y);
+        x = drawNumber(gc, scene == null ? 0 : countNodes(scene.getRoot()), x, y);
+        Runtime runtime = Runtime.getRuntime();
+        x = drawText(gc, "  heap ", x, y);
+        x = drawNumber(gc, (runtime.totalMemory() - runtime.freeMemory()) >> 20, x, y);
+        x = drawText(gc, "/", x, y);
+        x = drawNumber(gc, runtime.totalMemory() >> 20, x, y);
+        x = drawText(gc, "MB  flip ", x, y);
+        x = drawMillis(gc, gamePane.getLastFlipLatencyNanos() / 1e6, x, y);
+        drawText(gc, "ms", x, y);
+        if (now - windowStart >= WINDOW_NANOS) {
+            pulses.reset();
+            windowStart = now;
+        }
+    }
+
+    /**
+     * counts node and everything under it
+     */
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            Parent parent = (Parent) node;
+            for (int i = 0; i < parent.getChildrenUnmodifiable().size(); i++) { //no iterator
+                count += countNodes(parent.getChildrenUnmodifiable().get(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * draws a constant string, returns where the next character goes
+     */
+    private double drawText(GraphicsContext gc, String text, double x, double y) {
+        gc.fillText(text, x, y);
+        return x + text.length() * charWidth;
+    }
+
+    /**
+     * draws a value with one decimal place, returns where the next character goes
+     */
+    private double drawMillis(GraphicsContext gc, double value, double x, double y) {
+        long tenths = Math.round(value * 10);
+        x = drawNumber(gc, tenths / 10, x, y);
+        x = drawText(gc, ".", x, y);
+        return drawText(gc, DIGITS[(int) (tenths % 10)], x, y);
+    }
+
+    /**
+     * draws a whole number digit by digit out of DIGITS, returns where the next character goes
+     */
+    private double drawNumber(GraphicsContext gc, long value, double x, double y) {
+        long left = Math.max(0, value);
+        int count = 0;
+        do {
+            digits[count++] = (int) (left % 10);
+            left /= 10;
+        } while (left > 0);
+        for (int i = count - 1; i >= 0; i--) {
+            x = drawText(gc, DIGITS[digits[i]], x, y);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ *  RevealScheduler runs a task on the FX thread once a delay is up, used to resolve a pair after its faces
+ *  have been shown for the reveal delay. It's a one-shot timer per pair instead of something checking the
+ *  clock on every frame, and any number of pairs can be waiting at once.
+ *  cancelAll drops everything still waiting, for when a new board is dealt.
+ *
+ **/
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RevealScheduler {
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reveal-scheduler");
+        t.setDaemon(true); //don't keep the app alive after the window closes
+        return t;
+    }); //only waits out the delays, the tasks themselves run on the FX thread
+
+    private int generation; //bumped by cancelAll, tasks from an older generation don't run. only touched on the FX thread
+
+    /**
+     * runs task on the FX thread after delayMillis, unless cancelAll is called first
+     * @param delayMillis how long to wait
+     * @param task what to run on the FX thread
+     */
+    public void schedule(long delayMillis, Runnable task) {
+        int scheduledIn = generation;
+        executor.schedule(() -> Platform.runLater(() -> {
+            if (scheduledIn == generation) {
+                task.run();
+            }
+        }), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * cancels every task that hasn't run yet. must be called on the FX thread
+     */
+    public void cancelAll() {
+        generation++;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ *  SilentAudioBackend plays nothing. It only counts what it was asked to play, which is enough for headless
+ *  runs, CI and anything that wants to check which sounds a game would have made.
+ *
+ **/
+
+import java.util.EnumMap;
+
+public class SilentAudioBackend implements AudioBackend {
+    private final EnumMap<Sound, Integer> plays = new EnumMap<>(Sound.class); //times each sound was played
+
+    @Override
+    public void preload() {
+    }
+
+    @Override
+    public synchronized void play(Sound sound) {
+        plays.merge(sound, 1, Integer::sum);
+    }
+
+    @Override
+    public void stop(Sound sound) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * returns how many times a sound has been played
+     * @param sound the sound
+     * @return play count
+     */
+    public synchronized int getPlays(Sound sound) {
+        return plays.getOrDefault(sound, 0);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ *  Sound lists the sounds the game plays and the resource each one comes from.
+ *  Short sounds are kept loaded so they play the moment they're asked for, long ones are streamed
+ *  when they play and let go of afterwards.
+ *
+ **/
+
+public enum Sound {
+    MATCH("/beep.mp3", false),
+    NO_MATCH("/chime.mp3", false),
+    VICTORY("/bvictory.mp3", true);
+
+    private final String resource; //classpath resource of the mp3
+    private final boolean streamed; //true for long tracks that shouldn't stay in memory
+
+    Sound(String resource, boolean streamed) {
+        this.resource = resource;
+        this.streamed = streamed;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public boolean isStreamed() {
+        return streamed;
+    }
+}
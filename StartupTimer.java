@@ -0,0 +1,93 @@
+/**
+ *  StartupTimer records how long each phase of startup takes, from the JVM starting up to the first frame
+ *  being pulsed, so time-to-first-frame can be measured and compared between changes.
+ *  Main marks the end of each phase and the summary is printed once the first pulse is done,
+ *  when -Dmemorygame.startupTimings=true is set.
+ *
+ **/
+
+import javafx.scene.Scene;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+public class StartupTimer {
+    private static final long jvmStartNanos = jvmStartNanos(); //System.nanoTime() of the JVM starting, as near as can be told
+    private static final ArrayList<String> phases = new ArrayList<>(); //phase names in the order they ended
+    private static final ArrayList<Long> ends = new ArrayList<>(); //nanoTime each phase ended
+    private static boolean reported;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * marks the end of a startup phase
+     * @param phase name of the phase that just finished
+     */
+    public static synchronized void mark(String phase) {
+        phases.add(phase);
+        ends.add(System.nanoTime());
+    }
+
+    /**
+     * marks "first pulse" after the first frame of scene has been laid out and the summary gets printed then.
+     * the listener takes itself off again so later pulses don't pay for it
+     * @param scene the scene being shown
+     */
+    public static void markFirstPulse(Scene scene) {
+        markFirstPulse(scene, null);
+    }
+
+    /**
+     * same as markFirstPulse(scene), then runs afterFirstPulse, for work that was held back until the
+     * first frame was up
+     * @param scene the scene being shown
+     * @param afterFirstPulse what to run after the first pulse, can be null
+     */
+    public static void markFirstPulse(Scene scene, Runnable afterFirstPulse) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            mark("first pulse");
+            if (GameSettings.isStartupTimings()) {
+                report();
+            }
+            if (afterFirstPulse != null) {
+                afterFirstPulse.run();
+            }
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    /**
+     * prints how long each phase took and the total since the JVM started
+     */
+    public static synchronized void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        long previous = jvmStartNanos;
+        StringBuilder line = new StringBuilder("startup:");
+        for (int i = 0; i < phases.size(); i++) {
+            line.append(String.format(" %s %.1fms,", phases.get(i), (ends.get(i) - previous) / 1e6));
+            previous = ends.get(i);
+        }
+        line.append(String.format(" time to first frame %.1fms", (previous - jvmStartNanos) / 1e6));
+        System.out.println(line);
+    }
+
+    /**
+     * works out when the JVM started on the nanoTime clock, using the process start time from the OS
+     */
+    private static long jvmStartNanos() {
+        long now = System.nanoTime();
+        Instant started = ProcessHandle.current().info().startInstant().orElse(null);
+        if (started == null) {
+            return now;
+        }
+        long sinceStart = Duration.between(started, Instant.now()).toNanos();
+        return now - Math.max(0, sinceStart);
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ *  TextureAtlas packs the projimages faces and the card back into one sprite sheet.
+ *  Every card shows the same sheet and only changes the viewport rectangle of its ImageView,
+ *  so a whole board uses a single texture instead of one per face.
+ *  The sheet is packed from the AssetBundle when there is one, so building it doesn't decode anything.
+ *  compareStartup times building the atlas against decoding every file on its own.
+ *
+ **/
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class TextureAtlas {
+    public static final String BACK_PATH = "/projimages/backPic.jpg"; //the image on the back of every card
+    public static final int FACE_COUNT = Deck.FACE_COUNT; //number of image_N.jpg faces shipped in projimages
+    private static TextureAtlas shared; //built the first time it's asked for
+
+    private final WritableImage sheet; //the packed sprite sheet
+    private final HashMap<String, Rectangle2D> regions; //where each path ended up in the sheet
+    private final int tileSize; //side length of one cell in the sheet
+
+    private TextureAtlas(WritableImage sheet, HashMap<String, Rectangle2D> regions, int tileSize) {
+        this.sheet = sheet;
+        this.regions = regions;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * returns the atlas holding the back image and all of the shipped faces, building it on first use
+     * @return TextureAtlas
+     */
+    public static synchronized TextureAtlas getShared() {
+        if (shared == null) {
+            shared = build(defaultPaths());
+        }
+        return shared;
+    }
+
+    /**
+     * returns the back image path followed by every shipped face path
+     * @return list of paths
+     */
+    public static List<String> defaultPaths() {
+        ArrayList<String> paths = new ArrayList<>();
+        paths.add(BACK_PATH);
+        for (int i = 0; i < FACE_COUNT; i++) {
+            paths.add(Deck.facePath(i));
+        }
+        return paths;
+    }
+
+    /**
+     * decodes every path once and copies it into a square-ish grid of equal cells in one sheet, paths in the
+     * shared AssetBundle are copied out of it instead of decoded
+     * @param paths the images to pack
+     * @return the packed atlas
+     */
+    public static TextureAtlas build(List<String> paths) {
+        return build(paths, AssetBundle.getShared());
+    }
+
+    /**
+     * packs paths into one sheet, taking what it can from bundle and decoding the rest
+     * @param paths the images to pack
+     * @param bundle where to look for the pixels first, null to decode every file
+     * @return the packed atlas
+     */
+    private static TextureAtlas build(List<String> paths, AssetBundle bundle) {
+        Image[] images = new Image[paths.size()];
+        int tile = 1;
+        for (int i = 0; i < images.length; i++) {
+            images[i] = (bundle == null) ? null : bundle.image(paths.get(i));
+            if (images[i] == null) {
+                images[i] = new Image(paths.get(i));
+            }
+            if (images[i].isError()) {
+                throw new IllegalArgumentException("could not load " + paths.get(i), images[i].getException());
+            }
+            tile = Math.max(tile, (int) Math.ceil(Math.max(images[i].getWidth(), images[i].getHeight())));
+        }
+        int columns = (int) Math.ceil(Math.sqrt(images.length));
+        int sheetRows = (images.length + columns - 1) / columns;
+        WritableImage sheet = new WritableImage(columns * tile, Math.max(1, sheetRows) * tile);
+        PixelWriter writer = sheet.getPixelWriter();
+        HashMap<String, Rectangle2D> regions = new HashMap<>();
+        for (int i = 0; i < images.length; i++) {
+            int x = (i % columns) * tile;
+            int y = (i / columns) * tile;
+            int w = (int) images[i].getWidth();
+            int h = (int) images[i].getHeight();
+            writer.setPixels(x, y, w, h, images[i].getPixelReader(), 0, 0);
+            regions.put(paths.get(i), new Rectangle2D(x, y, w, h));
+        }
+        return new TextureAtlas(sheet, regions, tile);
+    }
+
+    /**
+     * times decoding every default image as its own file against building the atlas from the same files
+     * and against mapping them out of the asset bundle, and prints the results. the atlas row decodes the
+     * source files too, even when there's a bundle, so it's only the packing that differs from the per-file
+     * row. none of them go through the ImageCache so they all start cold, the bundle is opened again for its
+     * timing
+     * @param out where to print the comparison
+     */
+    public static void compareStartup(PrintStream out) {
+        List<String> paths = defaultPaths();
+        long start = System.nanoTime();
+        long perFilePixels = 0;
+        for (String path : paths) {
+            Image image = new Image(path);
+            perFilePixels += (long) image.getWidth() * (long) image.getHeight();
+        }
+        long perFileNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        TextureAtlas atlas = build(paths, null); //from the source files like the per-file row, not the bundle
+        long atlasNanos = System.nanoTime() - start;
+        long atlasPixels = (long) atlas.sheet.getWidth() * (long) atlas.sheet.getHeight();
+
+        out.printf("per-file: %d images, %.2f ms, %d textures, %d KB of pixels%n",
+                paths.size(), perFileNanos / 1e6, paths.size(), perFilePixels * 4 / 1024);
+        out.printf("atlas:    %d images, %.2f ms, 1 texture (%dx%d), %d KB of pixels%n",
+                paths.size(), atlasNanos / 1e6, (int) atlas.sheet.getWidth(), (int) atlas.sheet.getHeight(),
+                atlasPixels * 4 / 1024);
+
+        AssetBundle shared = AssetBundle.getShared();
+        if (shared != null) {
+            try {
+                start = System.nanoTime();
+                AssetBundle bundle = AssetBundle.open(shared.getFile());
+                for (String path : paths) {
+                    bundle.image(path);
+                }
+                out.printf("bundle:   %d images, %.2f ms, %d textures, no decode%n",
+                        paths.size(), (System.nanoTime() - start) / 1e6, paths.size());
+            } catch (IOException | RuntimeException e) {
+                out.println("bundle:   couldn't open " + shared.getFile() + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * returns the packed sheet every card shares
+     * @return Image
+     */
+    public Image getSheet() {
+        return sheet;
+    }
+
+    /**
+     * returns the rectangle of the sheet holding path, or null if it isn't in the atlas
+     * @param path image path
+     * @return Rectangle2D viewport
+     */
+    public Rectangle2D getRegion(String path) {
+        return regions.get(path);
+    }
+
+    public boolean contains(String path) {
+        return regions.containsKey(path);
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+}
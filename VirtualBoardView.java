@@ -0,0 +1,481 @@
+/**
+ *  VirtualBoardView shows a board far bigger than the window by only making Card nodes for the cells in view
+ *  (plus a one cell margin) and reusing them as the board is panned or zoomed. The state of every other cell is
+ *  never held in a node, it's read from the Board (the deck's pair ids and the GameEngine's bitsets) when a
+ *  cell comes into view, so a 1000x1000 board has the same few hundred nodes in the scene as a 20x20 one.
+ *
+ *  the cards sit in a ring of slots, slotRows x slotCols, big enough for the view at the smallest zoom.
+ *  cell (r, c) always goes in slot (r % slotRows, c % slotCols), so panning by a cell only rebinds the one
+ *  row or column of cards that went off one edge and came back on the other.
+ *  a face up card that's scrolled away is pinned instead of reused, GamePane still holds it for the pending
+ *  pair check, and it goes back into use once its pair has been resolved.
+ *
+ *  scrolling pans, ctrl + scroll (or a pinch) zooms around the pointer, and dragging with the right mouse
+ *  button pans too. the left button is left for the CardGridPane's click handling.
+ *
+ **/
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.ZoomEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class VirtualBoardView extends Region {
+    public static final int MIN_CELL_SIZE = 40; //smallest a card can be zoomed out to, this bounds the number of nodes
+    public static final int MAX_CELL_SIZE = 160;
+    public static final int DEFAULT_CELL_SIZE = 56;
+    public static final double VIEWPORT_SIZE = 800; //preferred size of the view, same as the board area GamePane fits boards into
+    private static final int MARGIN = 1; //cells kept bound past each edge of the view so a pan doesn't show empty cells
+    private static final double ZOOM_STEP = 1.1; //zoom per scroll notch
+
+    /**
+     * where the view reads the state of the cells from
+     */
+    public interface Board {
+        /**
+         * @param index cell index, row * cols + col
+         * @return the pair id dealt to the cell
+         */
+        int getPairId(int index);
+
+        /**
+         * @param index cell index
+         * @return true if the card is face up
+         */
+        boolean isFlipped(int index);
+
+        /**
+         * @param index cell index
+         * @return true if the card has been matched
+         */
+        boolean isMatched(int index);
+    }
+
+    private final Consumer<Card> onChange; //given to every card this view makes
+    private final Rectangle clip = new Rectangle();
+    private final DeckLoader deckLoader = DeckLoader.getShared(); //decodes faces that aren't cached yet off the FX thread
+    private Board board;
+    private int rows;
+    private int cols;
+    private double cellSize = DEFAULT_CELL_SIZE;
+    private double scrollX; //board pixel at the left edge of the view
+    private double scrollY; //board pixel at the top edge of the view
+    private int slotRows; //size of the ring of slots
+    private int slotCols;
+    private Card[] slots = new Card[0]; //slots[sr * slotCols + sc], null if the slot hasn't been used yet
+    private final ArrayList<Card> pinned = new ArrayList<>(); //face up cards scrolled out of the slots
+    private final ArrayDeque<Card> spare = new ArrayDeque<>(); //cards not showing any cell, hidden
+    private int firstRow; //cells bound by the last layout, inclusive
+    private int lastRow = -1;
+    private int firstCol;
+    private int lastCol = -1;
+    private boolean binding; //true while cards are being rebound, their change events are ignored then
+    private double dragX; //last pointer position of a right button pan, in scene coordinates
+    private double dragY;
+
+    /**
+     * creates an empty view
+     * @param onChange told whenever what one of this view's cards shows changes
+     */
+    public VirtualBoardView(Consumer<Card> onChange) {
+        this.onChange = onChange;
+        setClip(clip);
+        setPrefSize(VIEWPORT_SIZE, VIEWPORT_SIZE);
+        setMinSize(0, 0);
+        setOnScroll(this::handleScroll);
+        setOnZoom(this::handleZoom);
+        addEventHandler(MouseEvent.MOUSE_PRESSED, this::handlePanStart);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::handlePan);
+    }
+
+    /**
+     * shows a new board from its top left corner. every card goes back to spare, nothing is bound until the
+     * next layout, by then the Board has the new deal
+     * @param board where the cells' state comes from
+     * @param rows
+     * @param cols
+     */
+    public void setBoard(Board board, int rows, int cols) {
+        this.board = board;
+        this.rows = rows;
+        this.cols = cols;
+        scrollX = 0;
+        scrollY = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                release(slots[i]);
+                slots[i] = null;
+            }
+        }
+        for (Card card : pinned) {
+            release(card);
+        }
+        pinned.clear();
+        lastRow = -1;
+        lastCol = -1;
+        setPrefSize(Math.min(VIEWPORT_SIZE, cols * cellSize), Math.min(VIEWPORT_SIZE, rows * cellSize));
+        requestLayout();
+    }
+
+    /**
+     * returns the card showing cell r, c, binding one to it if none is. a cell outside the bound area gets a
+     * pinned card so it can be flipped from a replay, it's let go again at the next layout if it isn't face up
+     * @param r row
+     * @param c column
+     * @return Card
+     */
+    public Card getCard(int r, int c) {
+        Card card = boundCard(r, c);
+        if (card != null) {
+            return card;
+        }
+        card = takeSpare();
+        bind(card, r, c);
+        pinned.add(card);
+        place(card);
+        return card;
+    }
+
+    /**
+     * returns the card bound to cell r, c right now, or null if no card is showing it
+     * @param r row
+     * @param c column
+     * @return Card or null
+     */
+    public Card boundCard(int r, int c) {
+        if (r < 0 || c < 0 || r >= rows || c >= cols) {
+            return null;
+        }
+        if (slotRows > 0 && slotCols > 0) {
+            Card card = slots[(r % slotRows) * slotCols + (c % slotCols)];
+            if (card != null && card.getRow() == r && card.getCol() == c) {
+                return card;
+            }
+        }
+        for (Card card : pinned) {
+            if (card.getRow() == r && card.getCol() == c) {
+                return card;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * called when one of this view's cards changes. a card that has just been flipped up gets its face loaded
+     * if it doesn't have it yet, and a pinned card that has gone back down (its pair was resolved) is let go
+     * @param card the card that changed
+     */
+    public void cardChanged(Card card) {
+        if (binding || card.getRow() < 0) {
+            return;
+        }
+        if (card.isFlipped() && card.getImage() == null && card.getPath() != null) {
+            loadFace(card);
+        }
+        if ((!card.isFlipped() || !card.isVisible()) && pinned.contains(card)) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * binds the cards for the cells in view and puts every bound card where its cell is
+     */
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        clip.setWidth(width);
+        clip.setHeight(height);
+        if (board == null || rows == 0 || cols == 0 || width <= 0 || height <= 0) {
+            return;
+        }
+        clampScroll();
+        int neededRows = (int) Math.ceil(height / MIN_CELL_SIZE) + 1 + 2 * MARGIN;
+        int neededCols = (int) Math.ceil(width / MIN_CELL_SIZE) + 1 + 2 * MARGIN;
+        if (neededRows != slotRows || neededCols != slotCols) {
+            resizeSlots(neededRows, neededCols);
+        }
+        firstRow = Math.max(0, (int) (scrollY / cellSize) - MARGIN);
+        lastRow = Math.min(rows - 1, (int) ((scrollY + height) / cellSize) + MARGIN);
+        firstCol = Math.max(0, (int) (scrollX / cellSize) - MARGIN);
+        lastCol = Math.min(cols - 1, (int) ((scrollX + width) / cellSize) + MARGIN);
+
+        binding = true;
+        for (int sr = 0; sr < slotRows; sr++) {
+            int r = cellFor(sr, firstRow, lastRow, slotRows);
+            for (int sc = 0; sc < slotCols; sc++) {
+                int c = cellFor(sc, firstCol, lastCol, slotCols);
+                int slot = sr * slotCols + sc;
+                Card card = slots[slot];
+                if (r < 0 || c < 0) {
+                    if (card != null) {
+                        unbind(card);
+                        slots[slot] = null;
+                    }
+                    continue;
+                }
+                if (card == null || card.getRow() != r || card.getCol() != c) {
+                    if (card != null) {
+                        unbind(card);
+                    }
+                    card = pinnedCard(r, c);
+                    if (card == null) {
+                        card = takeSpare();
+                        bind(card, r, c);
+                    }
+                    slots[slot] = card;
+                }
+                place(card);
+            }
+        }
+        for (int i = pinned.size() - 1; i >= 0; i--) {
+            Card card = pinned.get(i);
+            if (isFaceUp(card)) {
+                place(card);
+            } else {
+                pinned.remove(i);
+                release(card);
+            }
+        }
+        binding = false;
+    }
+
+    /**
+     * the cell in first..last that lands in slot, or -1 if none does
+     */
+    private static int cellFor(int slot, int first, int last, int slotCount) {
+        if (last < first) {
+            return -1;
+        }
+        int cell = first + Math.floorMod(slot - first, slotCount);
+        return cell <= last ? cell : -1;
+    }
+
+    /**
+     * lets go of every slot, for when the view changes size and the ring has to be a different size
+     */
+    private void resizeSlots(int newRows, int newCols) {
+        for (Card card : slots) {
+            if (card != null) {
+                unbind(card);
+            }
+        }
+        slotRows = newRows;
+        slotCols = newCols;
+        slots = new Card[newRows * newCols];
+    }
+
+    /**
+     * takes a card out of a slot: a face up card is pinned to its cell, anything else goes to spare
+     */
+    private void unbind(Card card) {
+        if (isFaceUp(card)) {
+            pinned.add(card);
+        } else {
+            release(card);
+        }
+    }
+
+    /**
+     * takes the pinned card for r, c out of the pinned list, if there is one
+     */
+    private Card pinnedCard(int r, int c) {
+        for (int i = 0; i < pinned.size(); i++) {
+            Card card = pinned.get(i);
+            if (card.getRow() == r && card.getCol() == c) {
+                return pinned.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * a card that can't be let go of yet: face up and waiting for its pair to be resolved
+     */
+    private boolean isFaceUp(Card card) {
+        int index = card.getRow() * cols + card.getCol();
+        return card.getRow() >= 0 && card.getRow() < rows && card.getCol() < cols
+                && board.isFlipped(index) && !board.isMatched(index);
+    }
+
+    /**
+     * sets a card up to show cell r, c the way the Board says it is
+     */
+    private void bind(Card card, int r, int c) {
+        boolean wasBinding = binding;
+        binding = true;
+        int index = r * cols + c;
+        int size = (int) cellSize;
+        card.reset();
+        card.setGridPos(r, c);
+        card.setGridSize(rows, cols);
+        if (card.getImageSize() != size) {
+            card.setCardAndImageSize(size, size);
+        }
+        int pairId = board.getPairId(index);
+        card.setFace(pairId, ImageCache.getShared().peek(Deck.facePath(pairId), size));
+        if (board.isMatched(index)) {
+            card.setMatched(true);
+            card.setVisible(false);
+        } else if (board.isFlipped(index)) {
+            if (card.getImage() == null) {
+                loadFace(card);
+            }
+            card.flipCard(false); //no animation for a card scrolling into view
+        }
+        binding = wasBinding;
+    }
+
+    /**
+     * gives a face up card its face. a cached one is set right away, otherwise the DeckLoader decodes it and it's
+     * set on the FX thread once it's ready, if the card is still showing the same cell by then. the face stays
+     * empty till then, the FX thread never waits on a decode
+     */
+    private void loadFace(Card card) {
+        String path = card.getPath();
+        int size = card.getImageSize();
+        Image cached = ImageCache.getShared().peek(path, size);
+        if (cached != null) {
+            card.setImage(cached);
+            return;
+        }
+        int r = card.getRow();
+        int c = card.getCol();
+        deckLoader.load(List.of(path), size).thenRunAsync(() -> {
+            if (card.getRow() != r || card.getCol() != c || card.getImage() != null || card.getImageSize() != size
+                    || !path.equals(card.getPath())) {
+                return; //rebound or zoomed while it was loading, the new bind loads its own
+            }
+            Image loaded = ImageCache.getShared().peek(path, size);
+            if (loaded != null) {
+                card.setImage(loaded);
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * hides a card and puts it on the spare list
+     */
+    private void release(Card card) {
+        card.setGridPos(-1, -1);
+        card.setVisible(false);
+        spare.push(card);
+    }
+
+    /**
+     * returns a spare card, or a new one if there aren't any
+     */
+    private Card takeSpare() {
+        Card card = spare.poll();
+        if (card == null) {
+            card = new Card();
+            card.setOnChange(onChange);
+            card.setManaged(false);
+            getChildren().add(card);
+        }
+        return card;
+    }
+
+    /**
+     * moves a card to where its cell is with the current zoom and scroll
+     */
+    private void place(Card card) {
+        int size = (int) cellSize;
+        if (card.getImageSize() != size) {
+            card.setCardAndImageSize(size, size);
+        }
+        card.resizeRelocate(card.getCol() * cellSize - scrollX, card.getRow() * cellSize - scrollY, size, size);
+    }
+
+    /**
+     * keeps the view on the board
+     */
+    private void clampScroll() {
+        scrollX = Math.max(0, Math.min(scrollX, cols * cellSize - getWidth()));
+        scrollY = Math.max(0, Math.min(scrollY, rows * cellSize - getHeight()));
+    }
+
+    /**
+     * pans the view by dx, dy pixels
+     * @param dx
+     * @param dy
+     */
+    public void scrollBy(double dx, double dy) {
+        scrollX += dx;
+        scrollY += dy;
+        requestLayout();
+    }
+
+    /**
+     * zooms to cellSize, clamped to MIN_CELL_SIZE..MAX_CELL_SIZE, keeping the board point under x, y where it is
+     * @param newCellSize the new side length of a card
+     * @param x view x to zoom around
+     * @param y view y to zoom around
+     */
+    public void zoomTo(double newCellSize, double x, double y) {
+        double size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, Math.rint(newCellSize)));
+        if (size == cellSize) {
+            return;
+        }
+        scrollX = (scrollX + x) * size / cellSize - x;
+        scrollY = (scrollY + y) * size / cellSize - y;
+        cellSize = size;
+        requestLayout();
+    }
+
+    private void handleScroll(ScrollEvent event) {
+        if (event.isShortcutDown() || event.isControlDown()) {
+            if (event.getDeltaY() != 0) {
+                zoomTo(cellSize * (event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP), event.getX(), event.getY());
+            }
+        } else if (event.isShiftDown() && event.getDeltaX() == 0) {
+            scrollBy(-event.getDeltaY(), 0); //a plain wheel with shift pans sideways
+        } else {
+            scrollBy(-event.getDeltaX(), -event.getDeltaY());
+        }
+        event.consume();
+    }
+
+    private void handleZoom(ZoomEvent event) {
+        zoomTo(cellSize * event.getZoomFactor(), event.getX(), event.getY());
+        event.consume();
+    }
+
+    private void handlePanStart(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) {
+            dragX = event.getSceneX();
+            dragY = event.getSceneY();
+            event.consume(); //only the left button flips cards
+        }
+    }
+
+    private void handlePan(MouseEvent event) {
+        if (!event.isPrimaryButtonDown()) {
+            scrollBy(dragX - event.getSceneX(), dragY - event.getSceneY());
+            dragX = event.getSceneX();
+            dragY = event.getSceneY();
+            event.consume();
+        }
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+}
@@ -0,0 +1,49 @@
+package memorygame.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-board setup latency of CardGridPane.initCards for every level and a few bigger boards.
+ * The grid isn't in a scene, so it's driven from the benchmark thread. Needs the JavaFX toolkit (and a display).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardSetupBenchmark {
+    @Param({"2x3", "2x4", "4x4", "4x6", "6x6", "8x8", "12x12", "16x16"})
+    public String board;
+
+    private int rows;
+    private int cols;
+    private Object grid;
+
+    @Setup
+    public void setup() throws Throwable {
+        FxToolkit.start();
+        int[] size = GameClasses.parseBoard(board);
+        rows = size[0];
+        cols = size[1];
+        grid = GameClasses.GRID_NEW.invokeExact();
+    }
+
+    @Benchmark
+    public Object initCards() throws Throwable {
+        GameClasses.GRID_INIT_CARDS.invokeExact(grid, rows, cols);
+        return grid;
+    }
+}
@@ -0,0 +1,61 @@
+package memorygame.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Deal and shuffle throughput: what CardGridPane.createCardImageList + shuffleImages do per game,
+ * and dealing the result into the GameEngine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealBenchmark {
+    @Param({"2x3", "2x4", "4x4", "4x6", "6x6", "8x8", "16x16", "32x32", "100x100"})
+    public String board;
+
+    private int rows;
+    private int cols;
+    private RandomGenerator random;
+    private Object engine;
+
+    @Setup
+    public void setup() throws Throwable {
+        int[] size = GameClasses.parseBoard(board);
+        rows = size[0];
+        cols = size[1];
+        random = new Random(42);
+        engine = GameClasses.ENGINE_NEW.invokeExact();
+    }
+
+    @Benchmark
+    public int[] createAndShuffle() throws Throwable {
+        int[] deck = (int[]) GameClasses.DECK_PAIRS.invokeExact(rows * cols);
+        GameClasses.DECK_SHUFFLE.invokeExact(deck, random);
+        return deck;
+    }
+
+    @Benchmark
+    public Object dealIntoEngine() throws Throwable {
+        int[] deck = (int[]) GameClasses.DECK_PAIRS.invokeExact(rows * cols);
+        GameClasses.DECK_SHUFFLE.invokeExact(deck, random);
+        GameClasses.ENGINE_DEAL.invokeExact(engine, rows, cols, deck);
+        return engine;
+    }
+}
@@ -0,0 +1,33 @@
+package memorygame.bench;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark JVM. Image decoding and node construction need it running.
+ */
+final class FxToolkit {
+    private static boolean started;
+
+    private FxToolkit() {
+    }
+
+    static synchronized void start() throws InterruptedException {
+        if (started) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            Platform.startup(latch::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            latch.countDown();
+        }
+        Platform.setImplicitExit(false);
+        if (!latch.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("JavaFX toolkit did not start");
+        }
+        started = true;
+    }
+}
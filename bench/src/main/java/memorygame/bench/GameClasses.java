@@ -0,0 +1,86 @@
+package memorygame.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.random.RandomGenerator;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * The game classes live in the default package, which can't be imported from a named package
+ * (and JMH won't generate benchmarks in the default package). This looks their methods up once
+ * as static final MethodHandles, which the JIT treats as constants, so calling through them
+ * costs about the same as a direct call.
+ */
+final class GameClasses {
+    static final MethodHandle DECK_PAIRS; // (int) -> int[]
+    static final MethodHandle DECK_SHUFFLE; // (int[], RandomGenerator) -> void
+    static final MethodHandle DECK_FACE_PATH; // (int) -> String
+    static final MethodHandle ENGINE_NEW; // () -> Object
+    static final MethodHandle ENGINE_DEAL; // (Object, int, int, int[]) -> void
+    static final MethodHandle ENGINE_FLIP; // (Object, int) -> int
+    static final MethodHandle ENGINE_RESOLVE; // (Object, int, int) -> boolean
+    static final MethodHandle ENGINE_IS_SOLVED; // (Object) -> boolean
+    static final MethodHandle GRID_NEW; // () -> Object
+    static final MethodHandle GRID_INIT_CARDS; // (Object, int, int) -> void
+    static final MethodHandle CACHE_NEW; // (int) -> Object
+    static final MethodHandle CACHE_GET; // (Object, String) -> Object
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> deck = Class.forName("Deck");
+            Class<?> engine = Class.forName("GameEngine");
+            Class<?> grid = Class.forName("CardGridPane");
+            Class<?> cache = Class.forName("ImageCache");
+            Class<?> image = Class.forName("javafx.scene.image.Image");
+
+            DECK_PAIRS = lookup.findStatic(deck, "pairs", methodType(int[].class, int.class));
+            DECK_SHUFFLE = lookup.findStatic(deck, "shuffle", methodType(void.class, int[].class, RandomGenerator.class));
+            DECK_FACE_PATH = lookup.findStatic(deck, "facePath", methodType(String.class, int.class));
+
+            ENGINE_NEW = erase(lookup.findConstructor(engine, methodType(void.class)));
+            ENGINE_DEAL = erase(lookup.findVirtual(engine, "deal", methodType(void.class, int.class, int.class, int[].class)));
+            ENGINE_FLIP = erase(lookup.findVirtual(engine, "flip", methodType(int.class, int.class)));
+            ENGINE_RESOLVE = erase(lookup.findVirtual(engine, "resolve", methodType(boolean.class, int.class, int.class)));
+            ENGINE_IS_SOLVED = erase(lookup.findVirtual(engine, "isSolved", methodType(boolean.class)));
+
+            GRID_NEW = erase(lookup.findConstructor(grid, methodType(void.class)));
+            GRID_INIT_CARDS = erase(lookup.findVirtual(grid, "initCards", methodType(void.class, int.class, int.class)));
+
+            CACHE_NEW = erase(lookup.findConstructor(cache, methodType(void.class, int.class)));
+            CACHE_GET = erase(lookup.findVirtual(cache, "get", methodType(image, String.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private GameClasses() {
+    }
+
+    /**
+     * swaps the game class types in a handle's signature for Object so benchmarks can hold the instances
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive() && !type.parameterType(i).isArray()
+                    && type.parameterType(i) != String.class) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (!type.returnType().isPrimitive()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    /**
+     * parses a board size written as "rowsxcols", e.g. "8x8"
+     */
+    static int[] parseBoard(String board) {
+        int x = board.indexOf('x');
+        return new int[] {Integer.parseInt(board.substring(0, x)), Integer.parseInt(board.substring(x + 1))};
+    }
+}
@@ -0,0 +1,61 @@
+package memorygame.bench;
+
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image decode cost behind Card.setPath: one face decoded from scratch, a cold 8x8 deck's worth of faces,
+ * and the ImageCache hit that replaces the decode once a face has been loaded. Needs the JavaFX toolkit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageDecodeBenchmark {
+    private String[] deckFaces; //the 32 faces an 8x8 board is dealt from
+    private Object warmCache;
+
+    @Setup
+    public void setup() throws Throwable {
+        FxToolkit.start();
+        deckFaces = new String[32];
+        for (int i = 0; i < deckFaces.length; i++) {
+            deckFaces[i] = (String) GameClasses.DECK_FACE_PATH.invokeExact(i);
+        }
+        warmCache = GameClasses.CACHE_NEW.invokeExact(128);
+        Object warmed = GameClasses.CACHE_GET.invokeExact(warmCache, deckFaces[0]);
+    }
+
+    @Benchmark
+    public Image decodeOneFace() {
+        return new Image(deckFaces[0]);
+    }
+
+    @Benchmark
+    public Object decodeColdDeck() throws Throwable {
+        Object cache = GameClasses.CACHE_NEW.invokeExact(128);
+        Object last = null;
+        for (String face : deckFaces) {
+            last = GameClasses.CACHE_GET.invokeExact(cache, face);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object cacheHit() throws Throwable {
+        return (Object) GameClasses.CACHE_GET.invokeExact(warmCache, deckFaces[0]);
+    }
+}
@@ -0,0 +1,88 @@
+package memorygame.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * The match check GamePane.checkMatch hands to the engine: flip two cards and resolve them,
+ * plus a whole game played with perfect knowledge of the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+    @Param({"2x3", "4x4", "8x8", "32x32"})
+    public String board;
+
+    private int rows;
+    private int cols;
+    private int[] deck;
+    private int[] solution; //card indexes ordered so each consecutive two are a pair
+    private int mismatchA;
+    private int mismatchB;
+    private Object engine;
+
+    @Setup
+    public void setup() throws Throwable {
+        int[] size = GameClasses.parseBoard(board);
+        rows = size[0];
+        cols = size[1];
+        deck = (int[]) GameClasses.DECK_PAIRS.invokeExact(rows * cols);
+        GameClasses.DECK_SHUFFLE.invokeExact(deck, (RandomGenerator) new Random(42));
+        int[] firstSeen = new int[deck.length];
+        Arrays.fill(firstSeen, -1);
+        solution = new int[deck.length];
+        int n = 0;
+        for (int i = 0; i < deck.length; i++) {
+            if (firstSeen[deck[i]] < 0) {
+                firstSeen[deck[i]] = i;
+            } else {
+                solution[n++] = firstSeen[deck[i]];
+                solution[n++] = i;
+            }
+        }
+        mismatchA = 0;
+        mismatchB = 1;
+        while (deck[mismatchB] == deck[mismatchA]) {
+            mismatchB++;
+        }
+        engine = GameClasses.ENGINE_NEW.invokeExact();
+        GameClasses.ENGINE_DEAL.invokeExact(engine, rows, cols, deck);
+    }
+
+    @Benchmark
+    public boolean checkMismatch(Blackhole bh) throws Throwable {
+        bh.consume((int) GameClasses.ENGINE_FLIP.invokeExact(engine, mismatchA));
+        bh.consume((int) GameClasses.ENGINE_FLIP.invokeExact(engine, mismatchB));
+        return (boolean) GameClasses.ENGINE_RESOLVE.invokeExact(engine, mismatchA, mismatchB);
+    }
+
+    @Benchmark
+    public boolean playPerfectGame(Blackhole bh) throws Throwable {
+        GameClasses.ENGINE_DEAL.invokeExact(engine, rows, cols, deck);
+        for (int i = 0; i < solution.length; i += 2) {
+            bh.consume((int) GameClasses.ENGINE_FLIP.invokeExact(engine, solution[i]));
+            bh.consume((int) GameClasses.ENGINE_FLIP.invokeExact(engine, solution[i + 1]));
+            bh.consume((boolean) GameClasses.ENGINE_RESOLVE.invokeExact(engine, solution[i], solution[i + 1]));
+        }
+        return (boolean) GameClasses.ENGINE_IS_SOLVED.invokeExact(engine);
+    }
+}
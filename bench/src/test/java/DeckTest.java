@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * dealing from small boards up to the 1000x1000 one, past the shipped faces
+ */
+class DeckTest {
+
+    @Test
+    void dealsEveryPairIdExactlyTwice() {
+        for (int size : new int[]{2, 6, 16, 64, 36 * 2 + 2, 1000 * 1000}) {
+            int[] deck = Deck.deal(size, new SplittableRandom(size));
+            assertEquals(size, deck.length);
+            int[] seen = new int[size / 2];
+            for (int pairId : deck) {
+                assertTrue(pairId >= 0 && pairId < seen.length, "pair id " + pairId + " on a board of " + size);
+                seen[pairId]++;
+            }
+            for (int pairId = 0; pairId < seen.length; pairId++) {
+                assertEquals(2, seen[pairId], "pair id " + pairId + " on a board of " + size);
+            }
+        }
+    }
+
+    @Test
+    void oddSizeLeavesTheLastSlotOut() {
+        assertEquals(8, Deck.deal(9, new SplittableRandom(1)).length);
+    }
+
+    @Test
+    void sameSeedDealsTheSameBoard() {
+        assertArrayEquals(Deck.deal(64, new SplittableRandom(42)), Deck.deal(64, new SplittableRandom(42)));
+    }
+
+    @Test
+    void idsPastTheShippedFacesGetGeneratedFaces() {
+        assertEquals("/projimages/image_0.jpg", Deck.facePath(0));
+        assertEquals(Deck.GENERATED_PREFIX + Deck.FACE_COUNT, Deck.facePath(Deck.FACE_COUNT));
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * flipping, resolving and restoring on small boards dealt by hand
+ */
+class GameEngineTest {
+    private static final int[] BOARD = {0, 1, 0, 1, 2, 2}; //2x3, cards 0 and 2 match, 1 and 3, 4 and 5
+
+    @Test
+    void flipsAPairAndWaitsForResolve() {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        assertEquals(GameEngine.FIRST, engine.flip(0));
+        assertEquals(GameEngine.IGNORED, engine.flip(0)); //already face up
+        assertEquals(GameEngine.SECOND, engine.flip(1));
+        assertEquals(0, engine.getPairFirst());
+        assertEquals(1, engine.getPairSecond());
+        assertEquals(1, engine.getPendingPairs());
+        assertEquals(GameEngine.IGNORED, engine.flip(2)); //a pair is waiting and fast play is off
+    }
+
+    @Test
+    void fastPlayFlipsWhileAPairIsPending() {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        engine.setFastPlay(true);
+        engine.flip(0);
+        engine.flip(1);
+        assertEquals(GameEngine.FIRST, engine.flip(2));
+        assertEquals(2, engine.getFirstIndex());
+    }
+
+    @Test
+    void resolveMatchesOrTurnsBack() {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        engine.flip(0);
+        engine.flip(1);
+        assertFalse(engine.resolve(0, 1));
+        assertFalse(engine.isFlipped(0));
+        assertFalse(engine.isFlipped(1));
+        assertEquals(1, engine.getTurns());
+
+        engine.flip(0);
+        engine.flip(2);
+        assertTrue(engine.resolve(0, 2));
+        assertTrue(engine.isMatched(0));
+        assertTrue(engine.isMatched(2));
+        assertEquals(1, engine.getMatchedPairs());
+        assertEquals(2, engine.getTurns());
+        assertEquals(GameEngine.IGNORED, engine.flip(0)); //matched cards stay put
+    }
+
+    @Test
+    void resolveRejectsCardsThatAreNotFaceUp() {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        engine.flip(0);
+        assertThrows(IllegalStateException.class, () -> engine.resolve(0, 1));
+    }
+
+    @Test
+    void solvedOnceEveryPairIsMatched() {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        int[][] pairs = {{0, 2}, {1, 3}, {4, 5}};
+        for (int[] pair : pairs) {
+            assertFalse(engine.isSolved());
+            engine.flip(pair[0]);
+            engine.flip(pair[1]);
+            engine.resolve(pair[0], pair[1]);
+        }
+        assertTrue(engine.isSolved());
+    }
+
+    @Test
+    void dealRejectsTheWrongNumberOfCards() {
+        assertThrows(IllegalArgumentException.class, () -> new GameEngine(2, 3, new int[4]));
+    }
+
+    @Test
+    void restoreKeepsMatchesTurnsAndTheLoneFaceUpCard() {
+        GameEngine played = new GameEngine(2, 3, BOARD.clone());
+        played.flip(4);
+        played.flip(5);
+        played.resolve(4, 5);
+        played.flip(1);
+
+        GameEngine restored = new GameEngine();
+        restored.restore(2, 3, BOARD.clone(), played.getFlippedBits(), played.getMatchedBits(), played.getTurns());
+        assertArrayEquals(played.getMatchedBits(), restored.getMatchedBits());
+        assertEquals(1, restored.getMatchedPairs());
+        assertEquals(1, restored.getTurns());
+        assertEquals(1, restored.getFirstIndex());
+        assertEquals(GameEngine.SECOND, restored.flip(3)); //picks up as the second card of the pair
+    }
+
+    @Test
+    void restoreTurnsBackMoreThanOneFaceUpCard() {
+        GameEngine played = new GameEngine(2, 3, BOARD.clone());
+        played.flip(0);
+        played.flip(1);
+
+        GameEngine restored = new GameEngine();
+        restored.restore(2, 3, BOARD.clone(), played.getFlippedBits(), played.getMatchedBits(), played.getTurns());
+        assertFalse(restored.isFlipped(0));
+        assertFalse(restored.isFlipped(1));
+        assertEquals(-1, restored.getFirstIndex());
+        assertEquals(0, restored.getPendingPairs());
+    }
+
+    @Test
+    void restoreRejectsBitsetsForAnotherBoard() {
+        GameEngine engine = new GameEngine();
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.restore(2, 3, BOARD.clone(), new long[2], new long[2], 0));
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * saving and loading snapshots, and what a damaged file does
+ */
+class GameSnapshotTest {
+    private static final int[] BOARD = {0, 1, 0, 1, 2, 2};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrips() throws IOException {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        engine.flip(4);
+        engine.flip(5);
+        engine.resolve(4, 5);
+        engine.flip(1);
+        Path path = dir.resolve("game.bin");
+        GameSnapshot.capture(Level.ONE, 99, engine, 12_345).save(path);
+
+        GameSnapshot loaded = GameSnapshot.load(path);
+        assertEquals(Level.ONE, loaded.getLevel());
+        assertEquals(2, loaded.getRows());
+        assertEquals(3, loaded.getCols());
+        assertEquals(99, loaded.getSeed());
+        assertArrayEquals(BOARD, loaded.getPairIds());
+        assertArrayEquals(engine.getFlippedBits(), loaded.getFlipped());
+        assertArrayEquals(engine.getMatchedBits(), loaded.getMatched());
+        assertEquals(1, loaded.getTurns());
+        assertEquals(12_345, loaded.getElapsedMillis());
+    }
+
+    @Test
+    void keepsThePickedCardButNotAPendingPair() throws IOException {
+        GameEngine engine = new GameEngine(2, 3, BOARD.clone());
+        engine.setFastPlay(true);
+        engine.flip(0);
+        engine.flip(1); //waiting for its check
+        engine.flip(4);
+        Path path = dir.resolve("game.bin");
+        GameSnapshot.capture(null, 1, engine, 0).save(path);
+
+        GameSnapshot loaded = GameSnapshot.load(path);
+        assertNull(loaded.getLevel());
+        assertTrue(loaded.isFlipped(4));
+        assertFalse(loaded.isFlipped(0));
+        assertFalse(loaded.isFlipped(1));
+    }
+
+    @Test
+    void rejectsABadCrc() throws IOException {
+        Path path = dir.resolve("game.bin");
+        GameSnapshot.capture(Level.ONE, 1, new GameEngine(2, 3, BOARD.clone()), 0).save(path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[30] ^= 1; //somewhere in the header after the version
+        Files.write(path, bytes);
+        IOException e = assertThrows(IOException.class, () -> GameSnapshot.load(path));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path path = dir.resolve("game.bin");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> GameSnapshot.load(path));
+    }
+
+    @Test
+    void noFileIsNoSnapshot() throws IOException {
+        assertNull(GameSnapshot.load(dir.resolve("missing.bin")));
+    }
+}
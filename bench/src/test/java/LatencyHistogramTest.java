@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * percentiles stay within a bucket of the real value, and the registry hands out one of each name
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesAreWithinABucketOfTheRealValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertWithinABucket(500_000, histogram.getPercentileNanos(50));
+        assertWithinABucket(990_000, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(100)); //capped at the max, not the bucket top
+        assertEquals(1.0, histogram.getMaxMillis());
+        assertEquals(0.5005, histogram.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123_456);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMaxMillis());
+    }
+
+    @Test
+    void registryHandsOutOneOfEachName() {
+        MetricsRegistry registry = MetricsRegistry.getShared();
+        assertSame(registry.histogram("test.histogram"), registry.histogram("test.histogram"));
+        registry.counter("test.counter").add(3);
+        assertEquals(3L, registry.getCounters().get("test.counter"));
+        registry.histogram("test.histogram").record(1_000_000);
+        assertEquals(1, registry.getLatencies().get("test.histogram").getCount());
+    }
+
+    private static void assertWithinABucket(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, actual + " isn't within a bucket of " + expected);
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * trimming each level to its best KEPT results, in memory and saved to a file
+ */
+class LeaderboardTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsTheBestHundredBestFirst() throws IOException {
+        try (Leaderboard leaderboard = new Leaderboard(null)) {
+            for (int turns = 300; turns > 0; turns--) { //worst first, so every one of them makes the board
+                assertTrue(leaderboard.record(Level.ONE, turns, 1000, turns));
+            }
+            List<Leaderboard.Result> top = leaderboard.top(Level.ONE, 1000);
+            assertEquals(Leaderboard.KEPT, top.size());
+            for (int i = 0; i < top.size(); i++) {
+                assertEquals(i + 1, top.get(i).getTurns());
+            }
+            assertFalse(leaderboard.record(Level.ONE, 101, 1000, 0));
+            assertEquals(300 + 1, leaderboard.getGamesPlayed(Level.ONE));
+            assertTrue(leaderboard.top(Level.TWO, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void fewerTurnsBeatsTimeAndTimeBreaksTies() throws IOException {
+        try (Leaderboard leaderboard = new Leaderboard(null)) {
+            leaderboard.record(Level.ONE, 5, 1000, 1);
+            leaderboard.record(Level.ONE, 4, 9000, 2);
+            leaderboard.record(Level.ONE, 5, 500, 3);
+            List<Leaderboard.Result> top = leaderboard.top(Level.ONE, 3);
+            assertEquals(2, top.get(0).getSeed());
+            assertEquals(3, top.get(1).getSeed());
+            assertEquals(1, top.get(2).getSeed());
+        }
+    }
+
+    @Test
+    void everyResultOnTheBoardWasToldItMadeIt() throws Exception {
+        try (Leaderboard leaderboard = new Leaderboard(null)) {
+            Set<Long> madeIt = ConcurrentHashMap.newKeySet();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long thread = t;
+                futures.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(thread);
+                    for (int i = 0; i < 20_000; i++) {
+                        long seed = thread * 1_000_000 + i;
+                        if (leaderboard.record(Level.SIX, 32 + random.nextInt(5), 1000, seed)) {
+                            madeIt.add(seed);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            List<Leaderboard.Result> top = leaderboard.top(Level.SIX, 1000);
+            assertEquals(Leaderboard.KEPT, top.size());
+            for (Leaderboard.Result result : top) {
+                assertTrue(madeIt.contains(result.getSeed()), result + " is on the board but was turned away");
+            }
+        }
+    }
+
+    @Test
+    void reopeningKeepsTheTrimmedBoard() throws IOException {
+        Path path = dir.resolve("leaderboard.bin");
+        try (Leaderboard leaderboard = new Leaderboard(path)) {
+            for (int turns = 1; turns <= 150; turns++) {
+                leaderboard.record(Level.THREE, turns, 2000, turns);
+            }
+        }
+        try (Leaderboard leaderboard = new Leaderboard(path)) {
+            List<Leaderboard.Result> top = leaderboard.top(Level.THREE, 1000);
+            assertEquals(Leaderboard.KEPT, top.size());
+            assertEquals(1, top.get(0).getTurns());
+            assertEquals(Leaderboard.KEPT, top.get(top.size() - 1).getTurns());
+            assertEquals(2000, top.get(0).getElapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * writes logs with MoveLog and reads them back
+ */
+class MoveLogReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatWasLogged() throws IOException {
+        Path path = dir.resolve("moves.bin");
+        int[] pairIds = {0, 1, 0, 1, 2, 2};
+        try (MoveLog log = new MoveLog(path)) {
+            log.deal(7, 2, 3, pairIds);
+            log.flip(0, GameEngine.FIRST);
+            log.flip(2, GameEngine.SECOND);
+            log.resolve(0, 2, true);
+        }
+
+        MoveLogReader reader = new MoveLogReader(path);
+        assertTrue(reader.next());
+        assertEquals(MoveLog.DEAL, reader.getType());
+        assertEquals(7, reader.getSeed());
+        assertEquals(2, reader.getRows());
+        assertEquals(3, reader.getCols());
+        assertArrayEquals(pairIds, reader.getPairIds());
+        long dealtAt = reader.getNanos();
+
+        assertTrue(reader.next());
+        assertEquals(MoveLog.FLIP, reader.getType());
+        assertEquals(0, reader.getIndex());
+        assertEquals(GameEngine.FIRST, reader.getResult());
+        assertTrue(reader.getNanos() >= dealtAt);
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.getIndex());
+        assertEquals(GameEngine.SECOND, reader.getResult());
+
+        assertTrue(reader.next());
+        assertEquals(MoveLog.RESOLVE, reader.getType());
+        assertEquals(0, reader.getFirst());
+        assertEquals(2, reader.getSecond());
+        assertTrue(reader.isMatched());
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void readsALayoutSpreadOverManyBuffers() throws IOException {
+        Path path = dir.resolve("big.bin");
+        int[] pairIds = Deck.deal(1000 * 1000, new SplittableRandom(3));
+        try (MoveLog log = new MoveLog(path)) {
+            log.deal(3, 1000, 1000, pairIds);
+            log.flip(999_999, GameEngine.FIRST);
+        }
+
+        MoveLogReader reader = new MoveLogReader(path);
+        assertTrue(reader.next());
+        assertArrayEquals(pairIds, reader.getPairIds());
+        assertTrue(reader.next());
+        assertEquals(999_999, reader.getIndex());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void aTornLastRecordEndsTheLog() throws IOException {
+        Path path = dir.resolve("torn.bin");
+        try (MoveLog log = new MoveLog(path)) {
+            log.flip(1, GameEngine.FIRST);
+            log.flip(2, GameEngine.SECOND);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        MoveLogReader reader = new MoveLogReader(path);
+        assertTrue(reader.next());
+        assertEquals(1, reader.getIndex());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAMoveLog() throws IOException {
+        Path path = dir.resolve("other.bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> new MoveLogReader(path));
+    }
+}